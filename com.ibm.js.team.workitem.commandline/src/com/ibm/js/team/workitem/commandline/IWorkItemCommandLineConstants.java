@@ -91,6 +91,15 @@ public interface IWorkItemCommandLineConstants {
 	public static final String PARAMETER_TIMESTAMP_ENCODING = "timestampFormat";
 	public static final String PARAMETER_TIMESTAMP_ENCODING_EXAMPLE = "\"" + TIMESTAMP_EXPORT_IMPORT_FORMAT_MMM_D_YYYY_HH_MM_A + "\"";
 
+	// Number of threads used by commands that support parallel processing
+	public static final String PARAMETER_THREADS = "threads";
+	public static final String PARAMETER_THREADS_EXAMPLE = "4";
+
+	// Number of work items resolved with one request by commands that process
+	// query results
+	public static final String PARAMETER_PAGE_SIZE = "pageSize";
+	public static final String PARAMETER_PAGE_SIZE_EXAMPLE = "200";
+
 	// Include history in state validation
 	public static final String PARAMETER_INCLUDE_HISTORY_PROPERTY = "includehistory";
 	public static final String PARAMETER_INCLUDE_HISTORY_PROPERTY_EXAMPLE = "true";	
@@ -7,7 +7,9 @@
  *******************************************************************************/
 package com.ibm.js.team.workitem.commandline.commands;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,6 +21,8 @@ import com.ibm.js.team.workitem.commandline.framework.WorkItemCommandLineExcepti
 import com.ibm.js.team.workitem.commandline.helper.WorkItemTypeHelper;
 import com.ibm.js.team.workitem.commandline.parameter.ParameterList;
 import com.ibm.js.team.workitem.commandline.parameter.ParameterManager;
+import com.ibm.js.team.workitem.commandline.utils.OrderedTaskRunner;
+import com.ibm.js.team.workitem.commandline.utils.PagedWorkItemIterator;
 import com.ibm.js.team.workitem.commandline.utils.ProcessAreaUtil;
 import com.ibm.js.team.workitem.commandline.utils.QueryUtil;
 import com.ibm.js.team.workitem.commandline.utils.WorkItemUtil;
@@ -27,7 +31,6 @@ import com.ibm.team.process.common.advice.TeamOperationCanceledException;
 import com.ibm.team.repository.common.IAuditableHandle;
 import com.ibm.team.repository.common.TeamRepositoryException;
 import com.ibm.team.workitem.common.model.IWorkItem;
-import com.ibm.team.workitem.common.model.IWorkItemHandle;
 import com.ibm.team.workitem.common.model.IWorkItemType;
 import com.ibm.team.workitem.common.query.IQueryDescriptor;
 import com.ibm.team.workitem.common.query.IQueryResult;
@@ -48,6 +51,18 @@ public class BulkUpdateWorkItemsCommand extends AbstractWorkItemModificationComm
 
 	private ParameterList fUpdateParameters;
 
+	// The number of work items updated in parallel
+	private int fThreads = 1;
+
+	// The number of work items resolved with one request
+	private int fPageSize = PagedWorkItemIterator.DEFAULT_PAGE_SIZE;
+
+	// Each worker thread updates one work item at a time with its own copy of
+	// the parameters and collects its messages until they are merged in query
+	// order
+	private ThreadLocal<ParameterManager> fWorkerParameterManager = new ThreadLocal<ParameterManager>();
+	private ThreadLocal<List<String>> fWorkerMessages = new ThreadLocal<List<String>>();
+
 	/**
 	 * The constructor
 	 * 
@@ -86,6 +101,10 @@ public class BulkUpdateWorkItemsCommand extends AbstractWorkItemModificationComm
 		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.SWITCH_ENABLE_DELETE_ATTACHMENTS);
 		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.SWITCH_ENABLE_DELETE_APPROVALS);
 		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.SWITCH_SUPPRESS_MAIL_NOTIFICATION);
+		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_THREADS,
+				IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE,
+				IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE_EXAMPLE);
 	}
 
 	/**
@@ -100,7 +119,13 @@ public class BulkUpdateWorkItemsCommand extends AbstractWorkItemModificationComm
 	public String helpSpecificUsage() {
 		return " [" + IWorkItemCommandLineConstants.PARAMETER_SHARING_TARGETS
 				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
-				+ IWorkItemCommandLineConstants.PARAMETER_SHARING_TARGETS_EXAMPLE + "]";
+				+ IWorkItemCommandLineConstants.PARAMETER_SHARING_TARGETS_EXAMPLE + "]" + " ["
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE + "]" + " ["
+				+ IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE_EXAMPLE + "]";
 	}
 
 	/*
@@ -131,6 +156,10 @@ public class BulkUpdateWorkItemsCommand extends AbstractWorkItemModificationComm
 				.consumeParameter(IWorkItemCommandLineConstants.PARAMETER_SHARING_TARGETS);
 		IQueryDescriptor query = getWorlkItemQuery(projectArea, queryName, sharingTargetNames);
 
+		fThreads = consumeNumberParameter(IWorkItemCommandLineConstants.PARAMETER_THREADS, 1);
+		fPageSize = consumeNumberParameter(IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE,
+				PagedWorkItemIterator.DEFAULT_PAGE_SIZE);
+
 		bulkUpdateFromQuery(query);
 
 		return this.getResult();
@@ -170,52 +199,102 @@ public class BulkUpdateWorkItemsCommand extends AbstractWorkItemModificationComm
 	}
 
 	/**
+	 * Update all work items returned by the query. The work items are resolved
+	 * in pages and fed into a bounded queue that is consumed by the worker
+	 * threads. The results are merged into the operation result in query order.
+	 * 
 	 * @param query
 	 * @throws TeamRepositoryException
 	 */
 	private void bulkUpdateFromQuery(IQueryDescriptor query) throws TeamRepositoryException {
+		final boolean[] result = new boolean[] { true };
+		OrderedTaskRunner<WorkItemUpdateResult> runner = new OrderedTaskRunner<WorkItemUpdateResult>(fThreads,
+				fThreads * 4, getCommandName(), new OrderedTaskRunner.IResultHandler<WorkItemUpdateResult>() {
+					@Override
+					public void handleResult(WorkItemUpdateResult itemResult) {
+						for (String message : itemResult.messages) {
+							appendResultString(message);
+						}
+						result[0] &= itemResult.success;
+					}
+				});
 		try {
 			saveUpdateParameter();
-			boolean result = true;
 			// Query the work items
 			IQueryResult<IResult> results = QueryUtil.getUnresolvedQueryResult(query, isOverrideQueryResultSizeLimit());
 			ResultSize resultSize = results.getResultSize(getMonitor());
 			logger.trace("Query result size: " + resultSize.getTotal());
-			while (results.hasNext(null)) {
-				IResult queryResult = results.next(null);
-				result &= updateWorkItem((IWorkItemHandle) queryResult.getItem());
+			if (runner.isParallel()) {
+				logger.trace("Updating work items using " + fThreads + " threads");
+			}
+			PagedWorkItemIterator workItems = WorkItemUtil.resolveWorkItems(
+					QueryUtil.getWorkItemHandles(results, getMonitor()), IWorkItem.ID_PROFILE, fPageSize,
+					getWorkItemCommon(), getMonitor());
+			while (workItems.hasNext()) {
+				final IWorkItem workItem = workItems.next();
+				runner.submit(new Callable<WorkItemUpdateResult>() {
+					@Override
+					public WorkItemUpdateResult call() throws Exception {
+						return updateWorkItemInWorker(workItem);
+					}
+				});
+			}
+			runner.finish();
+			if (workItems.getUnresolvedCount() > 0) {
+				appendResultString("Work items that could not be resolved: " + workItems.getUnresolvedCount());
+				result[0] = false;
 			}
-			if (result) {
+			if (result[0]) {
 				this.setSuccess();
 				return;
 			}
 		} catch (Exception e) {
 			throw new WorkItemCommandLineException(e);
+		} finally {
+			runner.shutdown();
 		}
 
 		this.setFailed();
 	}
 
 	/**
-	 * @param item
-	 * @return
+	 * Update one work item on the current thread. The parameters and the
+	 * messages are kept per thread for the duration of the update.
+	 * 
+	 * @param workItem
+	 * @return the messages and the success of the update
 	 * @throws TeamRepositoryException
-	 * @throws WorkItemCommandLineException
 	 */
-	private boolean updateWorkItem(IWorkItemHandle item) throws TeamRepositoryException, WorkItemCommandLineException {
+	private WorkItemUpdateResult updateWorkItemInWorker(IWorkItem workItem) throws TeamRepositoryException {
+		WorkItemUpdateResult itemResult = new WorkItemUpdateResult();
 		// For each work item we create a new parameter manager that is then
 		// used in the subsequent call to update or create the work item
-		// Set the new parameter manager
-		this.setParameterManager(getUpdateParameterManager());
+		fWorkerParameterManager.set(getUpdateParameterManager());
+		fWorkerMessages.set(itemResult.messages);
+		try {
+			itemResult.success = updateWorkItemIgnoringErrors(workItem);
+		} finally {
+			fWorkerParameterManager.remove();
+			fWorkerMessages.remove();
+		}
+		return itemResult;
+	}
+
+	/**
+	 * @param workItem
+	 * @return
+	 * @throws TeamRepositoryException
+	 * @throws WorkItemCommandLineException
+	 */
+	private boolean updateWorkItemIgnoringErrors(IWorkItem workItem)
+			throws TeamRepositoryException, WorkItemCommandLineException {
 		boolean result = true;
 		try {
-			IWorkItem workItem = WorkItemUtil.resolveWorkItem(item, IWorkItem.ID_PROFILE, getWorkItemCommon(),
-					getMonitor());
 			result = updateWorkItem(workItem);
 		} catch (WorkItemCommandLineException e) {
 			if (isIgnoreErrors()) {
 				result = false;
-				getResult().appendResultString(e.getMessage());
+				appendResultString(e.getMessage());
 			} else {
 				throw e;
 			}
@@ -299,10 +378,47 @@ public class BulkUpdateWorkItemsCommand extends AbstractWorkItemModificationComm
 	}
 
 	/**
-	 * @return
+	 * @return a new parameter manager working on a copy of the update
+	 *         parameters
 	 */
 	private ParameterManager getUpdateParameterManager() {
-		return new ParameterManager(fUpdateParameters);
+		return new ParameterManager(new ParameterList(fUpdateParameters));
+	}
+
+	/**
+	 * While a work item is updated, use the parameter manager of the current
+	 * worker.
+	 * 
+	 * @see com.ibm.js.team.workitem.commandline.framework.AbstractCommand#getParameterManager()
+	 */
+	@Override
+	protected ParameterManager getParameterManager() {
+		// Called from the super constructor before the fields are initialized
+		if (fWorkerParameterManager != null) {
+			ParameterManager workerParameterManager = fWorkerParameterManager.get();
+			if (workerParameterManager != null) {
+				return workerParameterManager;
+			}
+		}
+		return super.getParameterManager();
+	}
+
+	/**
+	 * While a work item is updated, collect the messages for the current
+	 * worker. They are added to the result in query order.
+	 * 
+	 * @see com.ibm.js.team.workitem.commandline.framework.AbstractCommand#appendResultString(java.lang.String)
+	 */
+	@Override
+	public void appendResultString(String value) {
+		if (fWorkerMessages != null) {
+			List<String> workerMessages = fWorkerMessages.get();
+			if (workerMessages != null) {
+				workerMessages.add(value);
+				return;
+			}
+		}
+		super.appendResultString(value);
 	}
 
 	/**
@@ -313,4 +429,12 @@ public class BulkUpdateWorkItemsCommand extends AbstractWorkItemModificationComm
 		return true;
 	}
 
+	/**
+	 * The messages and the success of updating one work item
+	 */
+	private static class WorkItemUpdateResult {
+		private List<String> messages = new ArrayList<String>();
+		private boolean success = false;
+	}
+
 }
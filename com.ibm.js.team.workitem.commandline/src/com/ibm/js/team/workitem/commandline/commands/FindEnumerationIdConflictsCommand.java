@@ -8,11 +8,15 @@
 package com.ibm.js.team.workitem.commandline.commands;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.logging.log4j.Logger;
@@ -25,11 +29,16 @@ import org.xml.sax.SAXException;
 
 import com.ibm.js.team.workitem.commandline.IWorkItemCommandLineConstants;
 import com.ibm.js.team.workitem.commandline.OperationResult;
+import com.ibm.js.team.workitem.commandline.framework.WorkItemCommandLineException;
 import com.ibm.js.team.workitem.commandline.framework.AbstractTeamRepositoryCommand;
 import com.ibm.js.team.workitem.commandline.framework.IWorkItemCommand;
 import com.ibm.js.team.workitem.commandline.helper.ProcessAreaOslcHelper;
+import com.ibm.js.team.workitem.commandline.helper.ProcessAreaScanState;
 import com.ibm.js.team.workitem.commandline.parameter.ParameterManager;
-import com.ibm.team.calm.foundation.common.SecureDocumentBuilderFactory;
+import com.ibm.js.team.workitem.commandline.utils.BufferedLog;
+import com.ibm.js.team.workitem.commandline.utils.MultiPatternMatcher;
+import com.ibm.js.team.workitem.commandline.utils.OrderedTaskRunner;
+import com.ibm.js.team.workitem.commandline.utils.XmlParserUtil;
 import com.ibm.team.calm.foundation.common.internal.rest.dto.ResourceResultDTO;
 import com.ibm.team.repository.common.TeamRepositoryException;
 import com.ibm.team.repository.common.transport.HttpUtil.CharsetEncoding;
@@ -53,9 +62,17 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 	private static final String SWITCH_CATALOG = "showcatalog";
 	private static final String SWITCH_PROJECTS = "showprojects";
 	private static final String SWITCH_VERBOSE = "verbose";
+	protected static final String PARAMETER_SCAN_STATE_FILE = "scanStateFile";
+	protected static final String PARAMETER_SCAN_STATE_FILE_EXAMPLE = "\"C:\\temp\\scanstate.properties\"";
 	private boolean isShowProjects= false;
 	private boolean isShowCatalog= false;
 	private boolean isVerbose= false;
+	// The number of project areas fetched and scanned at the same time
+	private int threads= 1;
+	private String searchString= null;
+	private MultiPatternMatcher searchMatcher= null;
+	// The result of the last run, null to scan all project areas
+	private ProcessAreaScanState scanState= null;
 	
 	public IWorkItemClient workItemClient;
 
@@ -64,6 +81,16 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 		public String oslcCoreVersion;
 		public String oslcResourceID;
 	}
+
+	/**
+	 * A project area of the catalog.
+	 */
+	private static final class ProjectAreaEntry {
+		String url;
+		String projectAreaId;
+		String projectAreaName;
+		String projectUrl;
+	}
 	
 	public static final String[] RESERVED_ID_LIST= new String[] {
 			"smallString",
@@ -122,6 +149,20 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 			"stringList"		
 	};
 
+	// Finds all reserved ids with one pass over the process specification
+	private static final MultiPatternMatcher RESERVED_ID_MATCHER= new MultiPatternMatcher(createAttributeTypeIdPatterns());
+	// The text around a match that is reported
+	private static final int EXCERPT_BEFORE= 43;
+	private static final int EXCERPT_AFTER= 180;
+
+	private static List<String> createAttributeTypeIdPatterns() {
+		List<String> patterns= new ArrayList<String>(RESERVED_ID_LIST.length);
+		for (String id : RESERVED_ID_LIST) {
+			patterns.add("attributeTypeId=\"" + id + "\"");
+		}
+		return patterns;
+	}
+
 	/**
 	 * @param parameterManager
 	 */
@@ -160,6 +201,9 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 		getParameterManager().syntaxAddSwitch(SWITCH_PROJECTS);
 		getParameterManager().syntaxAddSwitch(SWITCH_CATALOG);
 		getParameterManager().syntaxAddSwitch(SWITCH_VERBOSE);
+		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_THREADS,
+				IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_SCAN_STATE_FILE, PARAMETER_SCAN_STATE_FILE_EXAMPLE);
 	}
 
 	@Override
@@ -173,7 +217,13 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 				+ SWITCH_SERVICES + "]" + " ["
 				+ SWITCH_PROJECTS + "]" + " ["
 				+ SWITCH_CATALOG + "]" + " ["
-				+ SWITCH_VERBOSE + "]"
+				+ SWITCH_VERBOSE + "]" + " ["
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE + "]" + " ["
+				+ PARAMETER_SCAN_STATE_FILE
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ PARAMETER_SCAN_STATE_FILE_EXAMPLE + "]"
 				;
 	}
 	
@@ -210,6 +260,25 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 			logger.error("Error constructing repository uri: " + repositoryUrl);
 		}
 
+		threads = consumeNumberParameter(IWorkItemCommandLineConstants.PARAMETER_THREADS, 1);
+		if (isSearchEnable()) {
+			searchString = getParameterManager()
+					.consumeParameter(IWorkItemCommandLineConstants.PARAMETER_SEARCH_STRING);
+			searchMatcher= new MultiPatternMatcher(searchString == null ? "" : searchString);
+		}
+		String scanStateFileName = getParameterManager().consumeParameter(PARAMETER_SCAN_STATE_FILE);
+		File scanStateFile = null;
+		if (scanStateFileName != null) {
+			scanStateFile = new File(scanStateFileName);
+			scanState = new ProcessAreaScanState(getScanKey(isSearchEnable() ? searchMatcher : RESERVED_ID_MATCHER));
+			try {
+				scanState.load(scanStateFile);
+				logger.info("Loaded the scan state of " + scanState.size() + " project areas from " + scanStateFileName);
+			} catch (IOException e) {
+				throw new WorkItemCommandLineException("Can not read scan state file: " + scanStateFileName, e);
+			}
+		}
+
 		try {
 			// Get all project area names
 			ProcessAreaOslcHelper projectAreaHelper = new ProcessAreaOslcHelper(logger);
@@ -236,9 +305,6 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 			}
 			
 			
-			DocumentBuilderFactory factory = SecureDocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-
 			Document document = null;
 			try {
 // root				
@@ -247,7 +313,7 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 //						xmlns:oslc="http://open-services.net/ns/core#" 
 //						xmlns:jfs_proc="http://jazz.net/xmlns/prod/jazz/process/1.0/">			
 				
-				DocumentBuilder documentBuilder = factory.newDocumentBuilder();
+				DocumentBuilder documentBuilder = XmlParserUtil.getDocumentBuilder(true);
 				byte[] bytes = catContent.getBytes(CharsetEncoding.UTF8.toCharset().name());
 				document = documentBuilder.parse(new ByteArrayInputStream(bytes));
 			} catch (ParserConfigurationException ex) {
@@ -295,6 +361,7 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 				}
 ///				<oslc:serviceProvider>
 ///				<oslc:ServiceProvider rdf:about="https://m4:9443/ccm/oslc/contexts/_JX_LkG4sEeqzGr2AWIpubw/workitems/services.xml">
+				List<ProjectAreaEntry> projectAreaEntries= new ArrayList<ProjectAreaEntry>();
 				for (int x = 0; x < rdfNodes.getLength(); x++) { 
 					Node spNode = rdfNodes.item(x); 
 					if (spNode.getAttributes() == null || !spNode.getNodeName().contentEquals("oslc:serviceProvider"))
@@ -302,10 +369,11 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 					// find the /services.xml file for the project area
 					Node spContext = spNode.getAttributes().getNamedItem("rdf:about"); // find the url
 					if (spContext == null) continue;
-					String url = spContext.getNodeValue();
-					String projectAreaId = url.split("/contexts/")[1].split("/")[0];
-					String projectAreaName= "";
-					String projectUrl= "";
+					ProjectAreaEntry entry= new ProjectAreaEntry();
+					entry.url = spContext.getNodeValue();
+					entry.projectAreaId = entry.url.split("/contexts/")[1].split("/")[0];
+					entry.projectAreaName= "";
+					entry.projectUrl= "";
 	
 					NodeList spChildNodes= spNode.getChildNodes();
 					if (spChildNodes == null) {
@@ -322,80 +390,216 @@ public class FindEnumerationIdConflictsCommand extends AbstractTeamRepositoryCom
 							continue;
 						}
 						if (childValue.indexOf("dcterms:title") != -1) {
-							projectAreaName= childNode.getFirstChild().getNodeValue();
+							entry.projectAreaName= childNode.getFirstChild().getNodeValue();
 //							logger.trace("Found project area: " + (projectAreaName == null ? "Unknown" : projectAreaName));
 						}
 						if (childValue.indexOf("oslc:details") != -1) {
-							projectUrl= childNode.getFirstChild().getNodeValue();
+							entry.projectUrl= childNode.getFirstChild().getNodeValue();
 //							logger.trace("Found project  url: " + (projectUrl == null ? "Unknown" : projectUrl));
 						}
 					}
-	
-					logger.info("Searching \"" + (projectAreaName == null ? "Unknown" : projectAreaName) + "\" [ " + projectAreaId + " ] " + url);
-					
-					if (projectAreaId == null || repositoryURI == null) {
-						logger.error("Null project areaId or repository uri found. Skipping.");
-						continue;
-					}
-					
-					String projectAreaConfiguration = projectAreaHelper.fetchProjectAreaConfigurationXml(this, factory,
-							projectAreaId, repositoryURI, (isVerbose || isShowProjects));
-	
-					if (isShowProjects || isVerbose) {
-						try {
-						logger.info("Project Area content for: " + projectAreaName + "\n" + StringEscapeUtils.unescapeXml(projectAreaConfiguration));
-						} catch (Exception e) {
-							logger.warn("Could not parse content for " + projectAreaName  + "\n" + projectAreaConfiguration);
-						}
-					}
-					
-					if (projectAreaConfiguration == null || projectAreaConfiguration.length() == 0) {
-						logger.info("\nOK. No project area process configuration history changes found for: " + projectAreaName + " [ " +  projectAreaId + " ] " + projectUrl + " \n" + projectAreaConfiguration) ;
-					} else {
-						if (!this.isSearchEnable()) {	// find ids
-							boolean found=false;
-							for (int s=0;s<RESERVED_ID_LIST.length;s++) { 
-								String test= RESERVED_ID_LIST[s];
-								int index=projectAreaConfiguration.indexOf("attributeTypeId=\"" + test + "\"");
-								if (index != -1) {
-									found= true;
-									logger.warn("\n*** Reserved attributeTypeId=\"" + test + "\" found in project: " + projectAreaName + " [ " +  projectAreaId + " ] " + projectUrl + " ") ;
-									String line = projectAreaConfiguration.substring(index -43, index + 180);
-									line= StringEscapeUtils.unescapeXml(line);
-									logger.warn("\n "+ line);
-								}
-							}
-							if (!found) {
-								logger.info("OK. No reserved attributeTypeId's found found in project: " + projectAreaName + " [ " +  projectAreaId + " ] " + projectUrl) ;
-							}
-						} else { // search						
-							String searchString = getParameterManager()
-									.consumeParameter(IWorkItemCommandLineConstants.PARAMETER_SEARCH_STRING);
-							int index=projectAreaConfiguration.indexOf(searchString);
-
-							if (index != -1) {
-								logger.warn("\n*** Search String \"" + searchString + "\" found in project: " + projectAreaName + " [ " +  projectAreaId + " ] " + projectUrl) ;
-								String line = projectAreaConfiguration.substring(index -43, index + 180);
-								line= StringEscapeUtils.unescapeXml(line);
-								logger.warn("\n "+ line);
-							} else {
-								logger.info("Not found. Search String \"" + searchString + "\" not found found in project: " + projectAreaName + " [ " +  projectAreaId + " ] " + projectUrl) ;
-							}
-						}
-					}
-	
+					projectAreaEntries.add(entry);
 				}
+				scanProjectAreas(projectAreaHelper, repositoryURI, projectAreaEntries);
 //			}
 			} catch (Exception e) {
 				logger.error("Unknown exception: " + e + " " + e.getMessage());
 				throw new TeamRepositoryException(e.getMessage());
 			}
 
+		if (scanState != null) {
+			logger.info(scanState.getStatistics());
+			try {
+				scanState.store(scanStateFile);
+			} catch (IOException e) {
+				throw new WorkItemCommandLineException("Can not write scan state file: " + scanStateFileName, e);
+			}
+		}
 
 		setSuccess();
 		return getResult();
 	}
 
+	/**
+	 * Fetch and scan the process configuration of the project areas. With more
+	 * than one thread the project areas are fetched and scanned in parallel and
+	 * the output of each project area is written in the order of the catalog.
+	 * 
+	 * @param projectAreaHelper
+	 * @param repositoryURI
+	 * @param projectAreas
+	 */
+	private void scanProjectAreas(final ProcessAreaOslcHelper projectAreaHelper, final URI repositoryURI,
+			List<ProjectAreaEntry> projectAreas) {
+		OrderedTaskRunner<BufferedLog> runner = new OrderedTaskRunner<BufferedLog>(threads, threads * 4,
+				getCommandName(), new OrderedTaskRunner.IResultHandler<BufferedLog>() {
+					@Override
+					public void handleResult(BufferedLog log) {
+						log.flush();
+					}
+				});
+		final boolean buffered = runner.isParallel();
+		if (buffered) {
+			logger.debug("Scanning " + projectAreas.size() + " project areas using " + threads + " threads");
+		}
+		try {
+			for (final ProjectAreaEntry projectArea : projectAreas) {
+				runner.submit(new Callable<BufferedLog>() {
+					@Override
+					public BufferedLog call() throws Exception {
+						BufferedLog log = new BufferedLog(logger, buffered);
+						scanProjectArea(projectAreaHelper, repositoryURI, projectArea, log);
+						return log;
+					}
+				});
+			}
+			runner.finish();
+		} finally {
+			runner.shutdown();
+		}
+	}
+
+	/**
+	 * Fetch the process configuration of a project area and search it for the
+	 * reserved ids or the search string. Can run on a worker thread.
+	 * 
+	 * @param projectAreaHelper
+	 * @param repositoryURI
+	 * @param projectArea
+	 * @param log
+	 *            - receives the output for the project area
+	 * @throws IOException
+	 */
+	private void scanProjectArea(ProcessAreaOslcHelper projectAreaHelper, URI repositoryURI,
+			ProjectAreaEntry projectArea, BufferedLog log) throws IOException {
+		log.info("Searching \"" + (projectArea.projectAreaName == null ? "Unknown" : projectArea.projectAreaName) + "\" [ " + projectArea.projectAreaId + " ] " + projectArea.url);
+		
+		if (projectArea.projectAreaId == null || repositoryURI == null) {
+			log.error("Null project areaId or repository uri found. Skipping.");
+			return;
+		}
+		
+		String specificationUrl = projectAreaHelper.fetchProcessSpecificationUrl(this, projectArea.projectAreaId,
+				repositoryURI, (isVerbose || isShowProjects), log);
+		if (scanState != null && specificationUrl != null) {
+			List<Integer> unchangedMatches = scanState.getUnchangedMatches(projectArea.projectAreaId, specificationUrl);
+			if (unchangedMatches != null) {
+				reportUnchangedProjectArea(projectArea, unchangedMatches, log);
+				return;
+			}
+		}
+		MultiPatternMatcher matcher = this.isSearchEnable() ? searchMatcher : RESERVED_ID_MATCHER;
+		List<MultiPatternMatcher.Match> matches = null;
+		if (specificationUrl != null && (isShowProjects || isVerbose)) {
+			// The content is shown, so it is read completely
+			String projectAreaConfiguration = projectAreaHelper.fetchProcessSpecification(this, specificationUrl, log);
+			try {
+			log.info("Project Area content for: " + projectArea.projectAreaName + "\n" + StringEscapeUtils.unescapeXml(projectAreaConfiguration));
+			} catch (Exception e) {
+				log.warn("Could not parse content for " + projectArea.projectAreaName  + "\n" + projectAreaConfiguration);
+			}
+			if (projectAreaConfiguration.length() > 0) {
+				matches = matcher.findAll(new StringReader(projectAreaConfiguration), EXCERPT_BEFORE, EXCERPT_AFTER);
+			}
+		} else if (specificationUrl != null) {
+			// All occurrences of all patterns in one pass while the content is read
+			matches = projectAreaHelper.scanProcessSpecification(this, specificationUrl, matcher, EXCERPT_BEFORE,
+					EXCERPT_AFTER, log);
+		}
+		
+		if (matches == null) {
+			log.info("\nOK. No project area process configuration history changes found for: " + projectArea.projectAreaName + " [ " +  projectArea.projectAreaId + " ] " + projectArea.projectUrl) ;
+		} else {
+			if (!this.isSearchEnable()) {	// find ids
+				for (MultiPatternMatcher.Match match : matches) {
+					log.warn("\n*** Reserved attributeTypeId=\"" + RESERVED_ID_LIST[match.getPatternIndex()] + "\" found in project: " + projectArea.projectAreaName + " [ " +  projectArea.projectAreaId + " ] " + projectArea.projectUrl + " ") ;
+					log.warn("\n "+ getExcerpt(match));
+				}
+				if (matches.isEmpty()) {
+					log.info("OK. No reserved attributeTypeId's found found in project: " + projectArea.projectAreaName + " [ " +  projectArea.projectAreaId + " ] " + projectArea.projectUrl) ;
+				}
+			} else { // search						
+				for (MultiPatternMatcher.Match match : matches) {
+					log.warn("\n*** Search String \"" + searchString + "\" found in project: " + projectArea.projectAreaName + " [ " +  projectArea.projectAreaId + " ] " + projectArea.projectUrl) ;
+					log.warn("\n "+ getExcerpt(match));
+				}
+				if (matches.isEmpty()) {
+					log.info("Not found. Search String \"" + searchString + "\" not found found in project: " + projectArea.projectAreaName + " [ " +  projectArea.projectAreaId + " ] " + projectArea.projectUrl) ;
+				}
+			}
+			rememberScan(projectArea, specificationUrl, matches);
+		}
+	}
+
+	/**
+	 * Report the result of the last scan of a project area whose process
+	 * configuration has not changed since. The text around the matches is not
+	 * stored, it is shown when the project area is scanned again.
+	 * 
+	 * @param projectArea
+	 * @param matches
+	 *            - the indexes of the patterns found in the last scan
+	 * @param log
+	 */
+	private void reportUnchangedProjectArea(ProjectAreaEntry projectArea, List<Integer> matches, BufferedLog log) {
+		String project = projectArea.projectAreaName + " [ " +  projectArea.projectAreaId + " ] " + projectArea.projectUrl;
+		for (Integer match : matches) {
+			if (!this.isSearchEnable()) {
+				log.warn("\n*** Reserved attributeTypeId=\"" + RESERVED_ID_LIST[match] + "\" found in project: " + project + " (unchanged since the last scan)");
+			} else {
+				log.warn("\n*** Search String \"" + searchString + "\" found in project: " + project + " (unchanged since the last scan)");
+			}
+		}
+		if (matches.isEmpty()) {
+			if (!this.isSearchEnable()) {
+				log.info("OK. No reserved attributeTypeId's found found in project: " + project + " (unchanged since the last scan)");
+			} else {
+				log.info("Not found. Search String \"" + searchString + "\" not found found in project: " + project + " (unchanged since the last scan)");
+			}
+		}
+	}
+
+	/**
+	 * Remember the patterns found in a project area for the next run.
+	 * 
+	 * @param projectArea
+	 * @param specificationUrl
+	 * @param matches
+	 */
+	private void rememberScan(ProjectAreaEntry projectArea, String specificationUrl,
+			List<MultiPatternMatcher.Match> matches) {
+		if (scanState == null || specificationUrl == null) {
+			return;
+		}
+		List<Integer> patternIndexes = new ArrayList<Integer>();
+		for (MultiPatternMatcher.Match match : matches) {
+			patternIndexes.add(match.getPatternIndex());
+		}
+		scanState.put(projectArea.projectAreaId, specificationUrl, patternIndexes);
+	}
+
+	/**
+	 * @param matcher
+	 * @return the patterns of the matcher, one per line
+	 */
+	private static String getScanKey(MultiPatternMatcher matcher) {
+		StringBuilder scanKey = new StringBuilder();
+		for (int i = 0; i < matcher.size(); i++) {
+			scanKey.append(matcher.getPattern(i)).append('\n');
+		}
+		return scanKey.toString();
+	}
+
+	/**
+	 * Get the text around a match, as found while scanning.
+	 * 
+	 * @param match
+	 * @return the unescaped text
+	 */
+	private static String getExcerpt(MultiPatternMatcher.Match match) {
+		return StringEscapeUtils.unescapeXml(match.getContext());
+	}
+
 //	public static final String PROJECT_AREA_HISTORY_URI_TEMPLATE = "/process/project-areas/$1/history?pageSize=1";
 	public static final String PROJECT_AREA_HISTORY_URI_TEMPLATE = "/process/project-areas/$1/history";
 
@@ -39,7 +39,13 @@ public class FindInProjectAreasCommand extends FindEnumerationIdConflictsCommand
 		return "" 
 				+ IWorkItemCommandLineConstants.PARAMETER_REPOSITORY_URL_PROPERTY
 				+ IWorkItemCommandLineConstants.PARAMETER_PASSWORD_FILE_PROPERTY 
-				+ IWorkItemCommandLineConstants.PARAMETER_SEARCH_STRING;
+				+ IWorkItemCommandLineConstants.PARAMETER_SEARCH_STRING + " ["
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE + "]" + " ["
+				+ PARAMETER_SCAN_STATE_FILE
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ PARAMETER_SCAN_STATE_FILE_EXAMPLE + "]";
 	}
 	
 	protected boolean isSearchEnable() {
@@ -8,7 +8,10 @@
 package com.ibm.js.team.workitem.commandline.commands;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
@@ -17,8 +20,15 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,8 +39,16 @@ import com.ibm.js.team.workitem.commandline.OperationResult;
 import com.ibm.js.team.workitem.commandline.framework.AbstractTeamRepositoryCommand;
 import com.ibm.js.team.workitem.commandline.framework.IWorkItemCommand;
 import com.ibm.js.team.workitem.commandline.framework.WorkItemCommandLineException;
+import com.ibm.js.team.workitem.commandline.helper.ConfigurationUriCache;
+import com.ibm.js.team.workitem.commandline.helper.LinkTripleIndex;
+import com.ibm.js.team.workitem.commandline.helper.OslcLinkType;
+import com.ibm.js.team.workitem.commandline.helper.TargetStatusCache;
+import com.ibm.js.team.workitem.commandline.helper.TargetUrlVerifier;
+import com.ibm.js.team.workitem.commandline.helper.WorkItemLinkReport;
 import com.ibm.js.team.workitem.commandline.helper.WorkItemOslcLinkHelper;
 import com.ibm.js.team.workitem.commandline.parameter.ParameterManager;
+import com.ibm.js.team.workitem.commandline.utils.OrderedTaskRunner;
+import com.ibm.js.team.workitem.commandline.utils.PagedWorkItemIterator;
 import com.ibm.js.team.workitem.commandline.utils.ProcessAreaUtil;
 import com.ibm.js.team.workitem.commandline.utils.QueryUtil;
 import com.ibm.js.team.workitem.commandline.utils.WorkItemUtil;
@@ -43,8 +61,6 @@ import com.ibm.team.process.common.IProjectArea;
 import com.ibm.team.repository.common.IAuditableHandle;
 import com.ibm.team.repository.common.NotLoggedInException;
 import com.ibm.team.repository.common.TeamRepositoryException;
-import com.ibm.team.repository.common.json.JSONArray;
-import com.ibm.team.repository.common.json.JSONObject;
 import com.ibm.team.repository.common.transport.HttpUtil;
 import com.ibm.team.repository.common.transport.HttpUtil.CharsetEncoding;
 import com.ibm.team.repository.common.transport.HttpUtil.MediaType;
@@ -55,7 +71,6 @@ import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient.IRawRe
 import com.ibm.team.workitem.client.IWorkItemClient;
 import com.ibm.team.workitem.common.IAuditableCommon;
 import com.ibm.team.workitem.common.model.IWorkItem;
-import com.ibm.team.workitem.common.model.IWorkItemHandle;
 import com.ibm.team.workitem.common.model.IWorkItemReferences;
 import com.ibm.team.workitem.common.model.ItemURI;
 import com.ibm.team.workitem.common.model.WorkItemLinkTypes;
@@ -84,85 +99,50 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 	// Parameter to specify the query
 	private static final String SWITCH_TRACE = "trace";
 	private static final String SWITCH_DEBUG = "debug";
+	// Ask the server for the configuration of every link
+	private static final String SWITCH_NO_CONFIGURATION_CACHE = "noConfigurationCache";
 	private static final String OSLC_HEADER = "OSLC-Core-Version";
 	private static final String OSLC_VERSION = "2.0";
 	private static final String ACCEPT_TYPE = "application/xml";
 	private static final String RM_CONFIG_CONTEXT = "oslc_config.context";
 //    [querysource="JKE Banking(Change Management),JKE Banking(Change Management)/Business Recovery Matters"] 
 
-	private static enum SystemType {
-		CCM, QM, RM
-	}
-
-	private static class OSLC_TYPE {
-		String linkType;
-		SystemType targetSystemType;
-
-		OSLC_TYPE(String linkT, SystemType sys) {
-			linkType = linkT;
-			targetSystemType = sys;
-		}
-	}
-
-	@SuppressWarnings("serial")
-	private static Map<String, OSLC_TYPE> OSLC_TYPE_MAP = new HashMap<String, OSLC_TYPE>() {
-		{
-			// OSLC types are defined at:
-			// http://docs.oasis-open.org/oslc-domains/cm/v3.0/cm-v3.0-part2-change-mgt-vocab.html
-			put(WorkItemLinkTypes.RELATED_REQUIREMENT /* "com.ibm.team.workitem.linktype.rm.relatedRequirement" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#affectsRequirement", SystemType.RM));
-			put(WorkItemLinkTypes.AFFECTS_EXECUTION_RESULT /* "com.ibm.team.workitem.linktype.affectsExecutionResult" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#affectsTestResult", SystemType.QM));
-			put(WorkItemLinkTypes.BLOCKS_EXECUTION_RECORD /*
-															 * "com.ibm.team.workitem.linktype.blocksTestExecutionRecord"
-															 */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#blocksTestExecutionRecord", SystemType.QM));
-			put(WorkItemLinkTypes.IMPLEMENTS_REQUIREMENT /* "com.ibm.team.workitem.linktype.implementsRequirement" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#implementsRequirement", SystemType.RM));
-			put(WorkItemLinkTypes.RELATED_WORK_ITEM /* "com.ibm.team.workitem.linktype.relatedworkitem.related" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#relatedChangeRequest", SystemType.RM));
-			put(WorkItemLinkTypes.RELATED_TEST_CASE /* "com.ibm.team.workitem.linktype.qm.relatedTestCase" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#relatedTestCase", SystemType.QM));
-			put(WorkItemLinkTypes.RELATED_EXECUTION_RECORD /*
-															 * "com.ibm.team.workitem.linktype.qm.relatedExecutionRecord"
-															 */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#relatedTestExecutionRecord", SystemType.QM));
-			put(WorkItemLinkTypes.RELATED_TEST_PLAN /* "com.ibm.team.workitem.linktype.qm.relatedTestPlan" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#relatedTestPlan", SystemType.QM));
-			put(WorkItemLinkTypes.TESTED_BY_TEST_CASE /* "com.ibm.team.workitem.linktype.testedByTestCase" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#testedByTestCase", SystemType.QM));
-			put(WorkItemLinkTypes.TRACKS_REQUIREMENT /* "com.ibm.team.workitem.linktype.rm.tracksRequirement" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#tracksRequirement", SystemType.RM));
-			put(WorkItemLinkTypes.RELATED_TEST_SCRIPT /* "com.ibm.team.workitem.linktype.qm.relatedTestScript" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#relatedTestScript", SystemType.QM));
-
-			put(WorkItemLinkTypes.CONTRIBUTES_TO_WORK_ITEM /* "com.ibm.team.workitem.linktype.trackedworkitem" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#trackedWorkItem", SystemType.CCM));
-
-			put(WorkItemLinkTypes.TRACKS_WORK_ITEM /* "com.ibm.team.workitem.linktype.tracksworkitem" */,
-					new OSLC_TYPE("http://open-services.net/ns/cm#tracksWorkItem", SystemType.CCM));
-
-			/*
-			 * CCM to CCM links are not checked because they don't use link index
-			 */
-			// put(WorkItemLinkTypes.AFFECTED_BY_DEFECT /*
-			// "com.ibm.team.workitem.linktype.cm.affectedByDefect" */,
-			// "http://open-services.net/ns/cm#affectedByDefect");
-			// put(WorkItemLinkTypes.AFFECTS_PLAN_ITEM /*
-			// "com.ibm.team.workitem.linktype.cm.affectsPlanItem" */,
-			// "http://open-services.net/ns/cm#affectsPlanItem");
-
-			/* Tracks/Contributes To are external ccm link types not oslc */
-
-			// TODO: add more backlinks
-			// put("none", "http://open-services.net/ns/cm#ChangeRequest");
-			// put("none",
-			// "http://open-services.net/ns/cm#requirementsChangeRequest");
-			// put("none", "http://open-services.net/ns/cm#tracksChangeSet");
-		}
-	};
 	private IProjectArea projectArea;
+	// Shared by all links, the helper is thread safe
+	private WorkItemOslcLinkHelper linkHelper = null;
 	public IWorkItemClient workItemClient;
+	// The number of work items resolved with one request
+	private int pageSize = PagedWorkItemIterator.DEFAULT_PAGE_SIZE;
+	// Parameter for the maximum number of target URLs in one LDX query
+	private static final String PARAMETER_LDX_BATCH_SIZE = "ldxBatchSize";
+	private static final String PARAMETER_LDX_BATCH_SIZE_EXAMPLE = "100";
+	private static final int DEFAULT_LDX_BATCH_SIZE = 100;
+	private int ldxBatchSize = DEFAULT_LDX_BATCH_SIZE;
+	private final AtomicInteger ldxQueryCount = new AtomicInteger();
+	// The number of work items validated at the same time, 1 is serial
+	private int threads = 1;
+	// Parameters for the verification of the GC link targets
+	private static final String PARAMETER_VERIFY_THREADS = "verifyThreads";
+	private static final String PARAMETER_VERIFY_THREADS_EXAMPLE = "8";
+	private static final int DEFAULT_VERIFY_THREADS = 4;
+	private static final String PARAMETER_MAX_PER_HOST = "maxPerHost";
+	private static final String PARAMETER_MAX_PER_HOST_EXAMPLE = "2";
+	private static final int DEFAULT_MAX_PER_HOST = 2;
+	private int verifyThreads = DEFAULT_VERIFY_THREADS;
+	private int maxPerHost = DEFAULT_MAX_PER_HOST;
+	private TargetUrlVerifier targetUrlVerifier = null;
+	// Parameters for the cache of verified targets
+	private static final String PARAMETER_TARGET_CACHE_ENTRIES = "targetCacheEntries";
+	private static final String PARAMETER_TARGET_CACHE_ENTRIES_EXAMPLE = "10000";
+	private static final int DEFAULT_TARGET_CACHE_ENTRIES = 10000;
+	private static final String PARAMETER_TARGET_CACHE_HOURS = "targetCacheHours";
+	private static final String PARAMETER_TARGET_CACHE_HOURS_EXAMPLE = "12";
+	private static final int DEFAULT_TARGET_CACHE_HOURS = 12;
+	private static final String PARAMETER_TARGET_CACHE_FILE = "targetCacheFile";
+	private static final String PARAMETER_TARGET_CACHE_FILE_EXAMPLE = "\"C:\\temp\\targets.properties\"";
+	// The configuration URIs by project area, link type, planned for and found
+	// in, null if the cache is disabled
+	private ConfigurationUriCache configurationUriCache = null;
 	public String sharingTargetNames;
 
 	public static final class GetRDFResourceParams {
@@ -171,6 +151,34 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 		public String oslcResourceID;
 	}
 
+	/**
+	 * A GC link of a work item waiting for the LDX query of its batch.
+	 */
+	private static final class PendingGCLink {
+		WorkItemLinkReport report;
+		int workItemId;
+		String sourceURL;
+		String linkType;
+		String targetURL;
+		URI targetUri;
+		String gcUriString;
+		String gcPath;
+		IReference reference;
+	}
+
+	/**
+	 * The result of the validation of one work item. The GC links are checked
+	 * later, together with the GC links of the other work items of the page.
+	 */
+	private static final class WorkItemValidation {
+		final WorkItemLinkReport report;
+		final List<PendingGCLink> gcLinks = new ArrayList<PendingGCLink>();
+
+		WorkItemValidation(WorkItemLinkReport report) {
+			this.report = report;
+		}
+	}
+
 	/**
 	 * @param parameterManager
 	 */
@@ -203,6 +211,17 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 				IWorkItemCommandLineConstants.PARAMETER_QUERY_NAME_EXAMPLE);
 		getParameterManager().syntaxAddSwitch(SWITCH_TRACE);
 		getParameterManager().syntaxAddSwitch(SWITCH_DEBUG);
+		getParameterManager().syntaxAddSwitch(SWITCH_NO_CONFIGURATION_CACHE);
+		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE,
+				IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_THREADS,
+				IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_LDX_BATCH_SIZE, PARAMETER_LDX_BATCH_SIZE_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_VERIFY_THREADS, PARAMETER_VERIFY_THREADS_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_MAX_PER_HOST, PARAMETER_MAX_PER_HOST_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_TARGET_CACHE_ENTRIES, PARAMETER_TARGET_CACHE_ENTRIES_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_TARGET_CACHE_HOURS, PARAMETER_TARGET_CACHE_HOURS_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_TARGET_CACHE_FILE, PARAMETER_TARGET_CACHE_FILE_EXAMPLE);
 	}
 
 	/*
@@ -229,13 +248,51 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 		}
 
 		String sharingTargetNamesOrNull = getParameterManager().consumeParameter(IWorkItemCommandLineConstants.PARAMETER_SHARING_TARGETS);
+		pageSize = consumeNumberParameter(IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE,
+				PagedWorkItemIterator.DEFAULT_PAGE_SIZE);
+		threads = consumeNumberParameter(IWorkItemCommandLineConstants.PARAMETER_THREADS, 1);
+		ldxBatchSize = consumeNumberParameter(PARAMETER_LDX_BATCH_SIZE, DEFAULT_LDX_BATCH_SIZE);
+		verifyThreads = consumeNumberParameter(PARAMETER_VERIFY_THREADS, DEFAULT_VERIFY_THREADS);
+		maxPerHost = consumeNumberParameter(PARAMETER_MAX_PER_HOST, DEFAULT_MAX_PER_HOST);
+		int targetCacheEntries = consumeNumberParameter(PARAMETER_TARGET_CACHE_ENTRIES,
+				DEFAULT_TARGET_CACHE_ENTRIES);
+		int targetCacheHours = consumeNumberParameter(PARAMETER_TARGET_CACHE_HOURS, DEFAULT_TARGET_CACHE_HOURS);
+		String targetCacheFileName = getParameterManager().consumeParameter(PARAMETER_TARGET_CACHE_FILE);
+		TargetStatusCache targetStatusCache = new TargetStatusCache(targetCacheEntries,
+				targetCacheHours * 60L * 60L * 1000L);
+		File targetCacheFile = null;
+		if (targetCacheFileName != null) {
+			targetCacheFile = new File(targetCacheFileName);
+			try {
+				targetStatusCache.load(targetCacheFile);
+				logger.info("Loaded " + targetStatusCache.size() + " verified targets from " + targetCacheFileName);
+			} catch (IOException e) {
+				throw new WorkItemCommandLineException("Can not read target cache file: " + targetCacheFileName, e);
+			}
+		}
+		// A new cache for every run, the process configuration can change
+		// between runs
+		configurationUriCache = getParameterManager().hasSwitch(SWITCH_NO_CONFIGURATION_CACHE) ? null
+				: new ConfigurationUriCache();
 		
 		workItemClient = (IWorkItemClient) getTeamRepository().getClientLibrary(IWorkItemClient.class);
+		linkHelper = new WorkItemOslcLinkHelper();
+		targetUrlVerifier = new TargetUrlVerifier(this, verifyThreads, maxPerHost, targetStatusCache);
 		try {
 			validateOslcLinksFromQuery(projectArea, queryName, sharingTargetNamesOrNull);
 		} catch (IOException | URISyntaxException e) {
-			System.err.println(e.getMessage());
-			e.printStackTrace();
+			logger.error(e.getMessage());
+			logger.trace(e.getMessage(), e);
+		} finally {
+			targetUrlVerifier.dispose();
+		}
+		logger.info(targetStatusCache.getStatistics());
+		if (targetCacheFile != null) {
+			try {
+				targetStatusCache.store(targetCacheFile);
+			} catch (IOException e) {
+				throw new WorkItemCommandLineException("Can not write target cache file: " + targetCacheFileName, e);
+			}
 		}
 		setSuccess();
 		return getResult();
@@ -266,7 +323,7 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 //		appendResultString("Query: " + queryName);
 		IQueryDescriptor query = getWorlkItemQuery(projectArea, queryName, sharingTargetNamesOrNull);
 		if (query == null) {
-			System.out.println("Query not found: " + queryName);
+			logger.error("Query not found: " + queryName);
 			throw new WorkItemCommandLineException("Query not found: " + queryName);
 		}
 		// Query the work items
@@ -274,17 +331,84 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 
 		ResultSize resultSize = results.getResultSize(getMonitor());
 		logger.debug("\nQuery: " + queryName + " result size: " + resultSize.getTotal());
-		List<IWorkItemHandle> workItems = new ArrayList<IWorkItemHandle>(resultSize.getTotal());
-		while (results.hasNext(null)) {
-			IResult result = results.next(null);
-			workItems.add((IWorkItemHandle) result.getItem());
-		}
-		if (workItems.size() == 0) {
+		// The handles are streamed from the query result page by page
+		PagedWorkItemIterator resolvedWorkItems = WorkItemUtil.resolveWorkItems(
+				QueryUtil.getWorkItemHandles(results, getMonitor()), IWorkItem.FULL_PROFILE, pageSize,
+				getWorkItemCommon(), getMonitor());
+		if (!resolvedWorkItems.hasNext()) {
 			logger.warn("\nQuery " + queryName + ": No work items found to analyze.");
 		}
-		for (IWorkItemHandle workItemHandle : workItems) {
-			validateOslcLinks(workItemHandle);
+		// The validated work items of the current page in query order, their
+		// reports wait for the GC links of the page
+		final List<WorkItemValidation> page = new ArrayList<WorkItemValidation>();
+		OrderedTaskRunner<WorkItemValidation> runner = new OrderedTaskRunner<WorkItemValidation>(threads,
+				threads * 4, getCommandName(), new OrderedTaskRunner.IResultHandler<WorkItemValidation>() {
+					@Override
+					public void handleResult(WorkItemValidation validation) {
+						if (page.isEmpty() && validation.gcLinks.isEmpty()) {
+							// Nothing pending before it, the report is complete
+							validation.report.flush();
+						} else {
+							page.add(validation);
+						}
+					}
+				});
+		if (runner.isParallel()) {
+			logger.debug("\nValidating work items using " + threads + " threads");
+		}
+		try {
+			while (resolvedWorkItems.hasNext()) {
+				final IWorkItem workItem = resolvedWorkItems.next();
+				runner.submit(new Callable<WorkItemValidation>() {
+					@Override
+					public WorkItemValidation call() throws Exception {
+						// Buffered, the GC links are reported after the page is checked
+						WorkItemValidation validation = new WorkItemValidation(
+								new WorkItemLinkReport(logger, workItem.getId(), true));
+						validateOslcLinks(workItem, validation);
+						return validation;
+					}
+				});
+				if (page.size() >= pageSize) {
+					validatePage(page);
+				}
+			}
+			runner.finish();
+		} catch (WorkItemCommandLineException e) {
+			rethrowTaskException(e);
+		} finally {
+			runner.shutdown();
+		}
+		validatePage(page);
+		logger.debug("\nLDX queries sent: " + ldxQueryCount.get());
+		if (configurationUriCache != null) {
+			logger.info(configurationUriCache.getStatistics());
+			configurationUriCache.clear();
+		}
+	}
+
+	/**
+	 * The task runner wraps the checked exceptions of the tasks. Throw them as
+	 * declared, so that they are reported as without the runner.
+	 * 
+	 * @param e
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 * @throws TeamRepositoryException
+	 */
+	private static void rethrowTaskException(WorkItemCommandLineException e)
+			throws IOException, URISyntaxException, TeamRepositoryException {
+		Throwable cause = e.getCause();
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		}
+		if (cause instanceof URISyntaxException) {
+			throw (URISyntaxException) cause;
 		}
+		if (cause instanceof TeamRepositoryException) {
+			throw (TeamRepositoryException) cause;
+		}
+		throw e;
 	}
 
 	/**
@@ -322,37 +446,70 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 
 	
 	
-	private void validateOslcLinks(IWorkItemHandle workItemHandle)
+	/**
+	 * Check the GC links of a page of work items with as few LDX queries as
+	 * possible and write the reports of the work items in query order.
+	 * 
+	 * @param page
+	 *            - the validated work items, cleared when done
+	 * @throws NotLoggedInException
+	 * @throws IOException
+	 * @throws TeamRepositoryException
+	 * @throws URISyntaxException
+	 */
+	private void validatePage(List<WorkItemValidation> page)
+			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
+		List<PendingGCLink> pendingGCLinks = new ArrayList<PendingGCLink>();
+		for (WorkItemValidation validation : page) {
+			pendingGCLinks.addAll(validation.gcLinks);
+		}
+		validatePendingGCLinks(pendingGCLinks);
+		for (WorkItemValidation validation : page) {
+			validation.report.flush();
+		}
+		page.clear();
+	}
+
+	/**
+	 * Validate the links of a work item. Can run on a worker thread, all output
+	 * goes to the report of the work item.
+	 * 
+	 * @param workItem
+	 * @param validation
+	 *            - collects the report and the GC links of the work item
+	 * @throws TeamRepositoryException
+	 * @throws IOException
+	 * @throws URISyntaxException
+	 */
+	private void validateOslcLinks(IWorkItem workItem, WorkItemValidation validation)
 			throws TeamRepositoryException, IOException, URISyntaxException {
-		IWorkItem workItem = WorkItemUtil.resolveWorkItem(workItemHandle, IWorkItem.FULL_PROFILE, getWorkItemCommon(),
-				getMonitor());
-		IWorkItemReferences wiReferences = getWorkItemCommon().resolveWorkItemReferences(workItemHandle, getMonitor());
+		WorkItemLinkReport report = validation.report;
+		IWorkItemReferences wiReferences = getWorkItemCommon().resolveWorkItemReferences(workItem, getMonitor());
 		List<IEndPointDescriptor> endPoints = wiReferences.getTypes();
 		URI currentWorkItemURI = ItemURI.createWorkItemURI(getAuditableCommon(), workItem.getId());
 		String gcUriString = null;
 		if (endPoints.size() == 0) {
-			logger.debug("\nItem "+ workItem.getId() + ": No links for work item."); // new logging
+			report.debug("\nItem "+ workItem.getId() + ": No links for work item."); // new logging
 		}
-		logger.warn("\n--- Checking Links for Item "+ workItem.getId() );
+		report.warn("\n--- Checking Links for Item "+ workItem.getId() );
 		for (IEndPointDescriptor endPoint : endPoints) {
 			List<IReference> links = wiReferences.getReferences(endPoint);
 			if (links.size() == 0) {
-				logger.debug("\nItem "+ workItem.getId() + ": No links for end point:" + endPoint.getDisplayName()); // new logging
+				report.debug("\nItem "+ workItem.getId() + ": No links for end point:" + endPoint.getDisplayName()); // new logging
 			}
 			for (IReference reference : links) {
 				if (reference.isURIReference()) {
 					ILinkType linkType = endPoint.getLinkType();
 					String message= "";
-					if (OSLC_TYPE_MAP.containsKey(linkType.getLinkTypeId())) {
+					OslcLinkType oslcLinkType = OslcLinkType.fromId(linkType.getLinkTypeId());
+					if (oslcLinkType != null && oslcLinkType.isInLinkIndex()) {
 						// URI uri = reference.createURI();
 						String linkTypeId = linkType.getLinkTypeId();
 						message= "\nItem " + workItem.getId() + ": Checking LinkTypeId: " + linkTypeId + " ComponentId: "
 								+ ((linkType.getComponentId() != null) ? "component: " + linkType.getComponentId() : "[none]");
 //								+ ("\n URI: " + uri)
 
-						gcUriString = workItemClient.getConfigurationUriForWorkItemByLinkType(
-								projectArea.getItemId().getUuidValue(), workItem.getItemId().getUuidValue(), linkTypeId,
-								getMonitor());
+						gcUriString = getConfigurationUri(workItem, linkTypeId);
 
 						/*
 						 * The GC could be defined in the Found In attribute or the Planned For
@@ -374,116 +531,251 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 							case WorkItemLinkTypes.ELABORATED_BY:
 								linkTypeId = WorkItemLinkTypes.IMPLEMENTS_REQUIREMENT;
 							}
-							gcUriString = workItemClient.getConfigurationUriForWorkItemByLinkType(
-									projectArea.getItemId().getUuidValue(), workItem.getItemId().getUuidValue(),
-									linkTypeId, getMonitor());
+							gcUriString = getConfigurationUri(workItem, linkTypeId);
 						}
 
 						if (gcUriString != null && !gcUriString.isEmpty()) {
-							logger.debug(message+" \nGlobal Configuration Uri: " + gcUriString 
+							report.debug(message+" \nGlobal Configuration Uri: " + gcUriString 
 									+ "\nfor work item: " + workItem.getId() + " link type: " + linkType.getLinkTypeId());
-							validateGCLink(gcUriString, workItem.getId(), currentWorkItemURI, reference);
+							addPendingGCLink(validation, gcUriString, workItem.getId(), currentWorkItemURI, reference);
 						} else {
 							// TODO validateLink(workItem, currentWorkItemURI, endPoint, reference);
-							logger.debug(message+"\nGlobal Configuration not configured for work item: " + workItem.getId() + " link type: "
+							report.debug(message+"\nGlobal Configuration not configured for work item: " + workItem.getId() + " link type: "
 									+ linkType.getLinkTypeId() + " ... searching Link Index...");
-							validateLdxWithoutGCLinks(workItem, endPoint, reference, logger);
+							validateLdxWithoutGCLinks(workItem, endPoint, reference, report);
 						}
 					} else {
 						try {
-						logger.trace("\nSkipping reference with excluded link type: " + reference.getLink().getLinkTypeId() + "... " + reference.getLink().getItemId().getUuidValue() + " " + reference.getLink().getTargetRef().createURI().toASCIIString() );
+						report.trace("\nSkipping reference with excluded link type: " + reference.getLink().getLinkTypeId() + "... " + reference.getLink().getItemId().getUuidValue() + " " + reference.getLink().getTargetRef().createURI().toASCIIString() );
 						} catch (Exception e) {
-							logger.trace("\nSkipping reference with excluded link type (non-uri): " + reference.getLink().getLinkTypeId() + "... " + reference.getLink().getItemId().getUuidValue() );
+							report.trace("\nSkipping reference with excluded link type (non-uri): " + reference.getLink().getLinkTypeId() + "... " + reference.getLink().getItemId().getUuidValue() );
 						}
 					}
 				} else {
-					logger.trace("\nSkipping reference with non-URI link type: " + reference.getLink().getLinkTypeId() + "... " + reference.getLink().getItemId().getUuidValue());
+					report.trace("\nSkipping reference with non-URI link type: " + reference.getLink().getLinkTypeId() + "... " + reference.getLink().getItemId().getUuidValue());
 				}
 			}
 		}
 	}
 	
-	private void validateLdxWithoutGCLinks(IWorkItem workItem, IEndPointDescriptor endPointDescriptor, IReference reference, Logger logger)
+	/**
+	 * Get the global configuration URI for the links of a work item with a link
+	 * type. The result is cached by project area, link type, planned for and
+	 * found in of the work item, unless the cache is disabled.
+	 * 
+	 * @param workItem
+	 * @param linkTypeId
+	 * @return the configuration URI, can be null or empty
+	 * @throws TeamRepositoryException
+	 */
+	private String getConfigurationUri(IWorkItem workItem, String linkTypeId) throws TeamRepositoryException {
+		String projectAreaId = projectArea.getItemId().getUuidValue();
+		String key = null;
+		if (configurationUriCache != null) {
+			key = ConfigurationUriCache.createKey(projectAreaId, linkTypeId, workItem.getTarget(),
+					workItem.getFoundIn());
+			if (configurationUriCache.contains(key)) {
+				return configurationUriCache.get(key);
+			}
+		}
+		String gcUriString = workItemClient.getConfigurationUriForWorkItemByLinkType(projectAreaId,
+				workItem.getItemId().getUuidValue(), linkTypeId, getMonitor());
+		if (configurationUriCache != null) {
+			configurationUriCache.put(key, gcUriString);
+		}
+		return gcUriString;
+	}
+
+	private void validateLdxWithoutGCLinks(IWorkItem workItem, IEndPointDescriptor endPointDescriptor, IReference reference,
+			WorkItemLinkReport report)
 			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
-		 WorkItemOslcLinkHelper helper= new WorkItemOslcLinkHelper();
-		 boolean missing = helper.validateLdxWithoutGCLinks(this, workItem, endPointDescriptor, reference, logger);
+		 boolean missing = linkHelper.validateLdxWithoutGCLinks(this, workItem, endPointDescriptor, reference, report);
 		 if(!missing) {
-			 logger.trace("\n+++OK. No missing backlinks found for item: " + workItem.getId() + " |" + endPointDescriptor.getDisplayName());
+			 report.trace("\n+++OK. No missing backlinks found for item: " + workItem.getId() + " |" + endPointDescriptor.getDisplayName());
 		 } else {
-			 logger.warn("\n***** Missing backlinks found for item: " + workItem.getId() + " |" + endPointDescriptor.getDisplayName());
+			 report.warn("\n***** Missing backlinks found for item: " + workItem.getId() + " |" + endPointDescriptor.getDisplayName());
 		 }
 	}
 	
 	/**
-	 * Validate that the GC link is known by the target server and that the artifact
-	 * exists.
+	 * Remember a GC link to be validated with the LDX query of its batch.
 	 * 
+	 * @param validation
 	 * @param gcUriString
 	 * @param workItemId
 	 * @param currentWorkItemURI
 	 * @param reference
+	 */
+	private void addPendingGCLink(WorkItemValidation validation, String gcUriString, int workItemId, URI currentWorkItemURI, IReference reference) {
+		URI gcUri = null;
+		try {
+			gcUri = new URI(gcUriString);
+		} catch (URISyntaxException e) {
+			gcUri = null;
+			logger.warn("Invalid global configuration URI: " + gcUriString);
+			logger.trace(e.getMessage(), e);
+		}
+		PendingGCLink link = new PendingGCLink();
+		link.report = validation.report;
+		link.workItemId = workItemId;
+		link.sourceURL = currentWorkItemURI.toString();
+		link.linkType = OslcLinkType.fromId(reference.getLink().getLinkTypeId()).getOslcLinkType();
+		link.targetUri = reference.getLink().getTargetRef().createURI();
+		link.targetURL = link.targetUri.toString();
+		link.gcUriString = gcUriString;
+		link.gcPath = gcUri == null ? "" : gcUri.getPath();
+		link.reference = reference;
+		validation.gcLinks.add(link);
+	}
+
+	/**
+	 * Validate the pending GC links. The links are grouped by LDX endpoint and
+	 * GC and each group is queried with one request for all its target URLs and
+	 * link types. The returned triples are matched back to the links.
+	 * 
+	 * @param pendingGCLinks
 	 * @throws NotLoggedInException
 	 * @throws IOException
 	 * @throws TeamRepositoryException
 	 * @throws URISyntaxException
 	 */
-	private void validateGCLink(String gcUriString, int workItemId, URI currentWorkItemURI, IReference reference)
+	private void validatePendingGCLinks(List<PendingGCLink> pendingGCLinks)
 			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
-		URI gcUri = null;
+		if (pendingGCLinks.isEmpty()) {
+			return;
+		}
+		Map<String, List<PendingGCLink>> groups = new LinkedHashMap<String, List<PendingGCLink>>();
+		for (PendingGCLink link : pendingGCLinks) {
+			String ldxUri = getLinkIndexProviderUri(link.targetUri);
+			if (ldxUri == null) {
+				link.report.warn("\n... cannot create LDX (REST) uri from: " + link.targetUri);
+				reportGCLink(link, false, true);
+				continue;
+			}
+			String key = ldxUri + "|" + link.gcPath;
+			List<PendingGCLink> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<PendingGCLink>();
+				groups.put(key, group);
+			}
+			group.add(link);
+		}
+		for (List<PendingGCLink> group : groups.values()) {
+			for (int start = 0; start < group.size(); start += ldxBatchSize) {
+				validateGCLinkBatch(group.subList(start, Math.min(start + ldxBatchSize, group.size())));
+			}
+		}
+	}
+
+	/**
+	 * Query the LDX once for a batch of GC links with the same LDX endpoint and
+	 * GC and validate each link against the returned triples.
+	 * 
+	 * @param batch
+	 * @throws NotLoggedInException
+	 * @throws IOException
+	 * @throws TeamRepositoryException
+	 * @throws URISyntaxException
+	 */
+	private void validateGCLinkBatch(List<PendingGCLink> batch)
+			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
+		Set<String> targetURLs = new LinkedHashSet<String>();
+		Set<String> linkTypes = new LinkedHashSet<String>();
+		for (PendingGCLink link : batch) {
+			targetURLs.add(link.targetURL);
+			linkTypes.add(link.linkType);
+		}
+		PendingGCLink first = batch.get(0);
+		LinkTripleIndex ldxBacklinks = getLDXBackLinksViaRest(first.targetUri, targetURLs, linkTypes, first.gcPath);
+		if (ldxBacklinks != null) {
+			logger.debug("LDX backlinks size: " + ldxBacklinks.size() + " for " + batch.size() + " links");
+		}
+		// Start verifying the targets of the found links, the verifications run
+		// concurrently with a limit per host
+		Map<PendingGCLink, Future<Boolean>> verifications = new HashMap<PendingGCLink, Future<Boolean>>();
+		for (PendingGCLink link : batch) {
+			if (ldxBacklinks != null && ldxBacklinks.contains(link.sourceURL, link.linkType, link.targetURL)) {
+				link.report.trace("\n> Found LDX (REST) link. Work item: " + link.workItemId + " |source: "
+						+ link.sourceURL + " |linkType: " + link.linkType + " |Target:" + link.targetURL);
+				verifications.put(link, targetUrlVerifier.verify(link.targetURL, link.gcUriString));
+			}
+		}
+		// Report in the order of the work items
+		for (PendingGCLink link : batch) {
+			Future<Boolean> verification = verifications.get(link);
+			reportGCLink(link, verification != null, verification == null || getVerificationResult(verification));
+		}
+	}
+
+	/**
+	 * Wait for the verification of a target.
+	 * 
+	 * @param verification
+	 * @return true if the target exists
+	 * @throws TeamRepositoryException
+	 * @throws URISyntaxException
+	 */
+	private boolean getVerificationResult(Future<Boolean> verification)
+			throws TeamRepositoryException, URISyntaxException {
 		try {
-			gcUri = new URI(gcUriString);
-		} catch (URISyntaxException e) {
-			gcUri = null;
-			e.printStackTrace();
-		}
-		String targetLinkType = OSLC_TYPE_MAP.get(reference.getLink().getLinkTypeId()).linkType;
-		JSONArray ldxBacklinks = getLDXBackLinkViaRest(reference.getLink().getTargetRef().createURI(),
-				gcUri == null ? "" : gcUri.getPath(), targetLinkType);
-		String resourceURL = reference.getLink().getTargetRef().createURI().toString();
-		boolean wasFound = false;
-		String targetURL = null;
-		logger.debug("LDX backlinks size: " + ldxBacklinks.size());
-		
-		for (int i = 0; i < ldxBacklinks.size(); i++) {
-			JSONObject triple = (JSONObject) ldxBacklinks.get(i);
-			wasFound = isLinkInTripleEqual(triple, currentWorkItemURI.toString(), targetLinkType, resourceURL); 
-			if (wasFound) {
-				logger.trace(
-						"\n> Found LDX (REST) link. Work item: " + workItemId + " |source: " + triple.get("sourceURL")
-								+ " |linkType: " + triple.get("linkType") + " |Target:" + triple.get("targetURL"));
-				targetURL = (String) triple.get("targetURL");
-				break;
-			} else {
-				logger.trace("\n... Skipping LDX link with source: " + triple.get("sourceURL") + " |linkType: "
-						+ triple.get("linkType") + " |Target:" + triple.get("targetURL"));
+			return verification.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WorkItemCommandLineException("Interrupted while verifying link targets", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof TeamRepositoryException) {
+				throw (TeamRepositoryException) cause;
+			}
+			if (cause instanceof URISyntaxException) {
+				throw (URISyntaxException) cause;
 			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new WorkItemCommandLineException((Exception) cause);
 		}
+	}
+
+	/**
+	 * Report a missing or broken GC link.
+	 * 
+	 * @param link
+	 * @param wasFound
+	 *            - true if the backlink was found in the LDX
+	 * @param isTargetValid
+	 *            - true if the target of a found link exists
+	 */
+	private void reportGCLink(PendingGCLink link, boolean wasFound, boolean isTargetValid) {
 		if (!wasFound) {
-			System.out.println("\n### Warning ### Backlink not found for workitem: " + workItemId + " linkType: "
-					+ reference.getLink().getLinkTypeId() + " |target: "
-					+ reference.getLink().getTargetRef().createURI().toString() + "|gc : " + gcUri.getPath());
-			System.out.println("\tIf link was just created wait a few minutes for the link to propagate.");
-		} else if (!validGCTargetURL(targetURL, gcUriString,
-				OSLC_TYPE_MAP.get(reference.getLink().getLinkTypeId()).targetSystemType)) {
-			System.out.println("\n### Warning ### Broken link for workitem: " + workItemId + " linkType: "
-					+ reference.getLink().getLinkTypeId() + " | target: "
-					+ reference.getLink().getTargetRef().createURI().toString() + " | gc : " + gcUri.getPath());
+			link.report.println("\n### Warning ### Backlink not found for workitem: " + link.workItemId + " linkType: "
+					+ link.reference.getLink().getLinkTypeId() + " |target: " + link.targetURL + "|gc : "
+					+ link.gcPath);
+			link.report.println("\tIf link was just created wait a few minutes for the link to propagate.");
+		} else if (!isTargetValid) {
+			link.report.println("\n### Warning ### Broken link for workitem: " + link.workItemId + " linkType: "
+					+ link.reference.getLink().getLinkTypeId() + " | target: " + link.targetURL + " | gc : "
+					+ link.gcPath);
 
 		}
 	}
 
 	/**
-	 * Validate that the target URL exists. Checks for broken links.
+	 * Validate that the target URL exists. Checks for broken links. Only the
+	 * status is used, the content of the response is not read. Called
+	 * concurrently by the TargetUrlVerifier.
 	 * 
 	 * @param targetURL
 	 * @param gcUriString
-	 * @param targetSystemType
 	 * @return true if the target URL returns HTTP status 200
 	 * @throws UnsupportedEncodingException
 	 * @throws TeamRepositoryException
 	 * @throws URISyntaxException
 	 */
-	private boolean validGCTargetURL(String targetURL, String gcUriString, SystemType targetSystemType)
+	public boolean validGCTargetURL(String targetURL, String gcUriString)
 			throws UnsupportedEncodingException, URISyntaxException, TeamRepositoryException {
 		boolean status = false;
 		if (targetURL != null && !targetURL.isEmpty()) {
@@ -506,19 +798,45 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 				status = response.getStatusCode() == 200;
 			} catch (TeamServiceException e) {
 				logger.debug(e.getMessage());
+			} finally {
+				connection.release();
 			}
-			connection.release();
 		}
 		return status;
 	}
 
-	private static final String QUERY_JSON = "\"targetURLs\": [ \"{0}\" ],\"linkTypes\":  [ \"{1}\"  ],\"gcURL\": \"{2}\""; // Do
+	private static final String QUERY_JSON = "\"targetURLs\": [ {0} ],\"linkTypes\":  [ {1} ],\"gcURL\": \"{2}\""; // Do
 																															// not
 
 	/* gcUrl can be empty */
-	public JSONArray getLDXBackLinkViaRest(URI targetUri, String gcUrl, String linkType)
+	public LinkTripleIndex getLDXBackLinkViaRest(URI targetUri, String gcUrl, String linkType)
 			throws NotLoggedInException, IOException, TeamRepositoryException {
-		JSONArray result = null;
+		Set<String> targetURLs = new LinkedHashSet<String>();
+		targetURLs.add(targetUri.toString());
+		Set<String> linkTypes = new LinkedHashSet<String>();
+		linkTypes.add(linkType);
+		return getLDXBackLinksViaRest(targetUri, targetURLs, linkTypes, gcUrl);
+	}
+
+	/**
+	 * Query the LDX of the target server for the links to several targets with
+	 * one request.
+	 * 
+	 * @param targetUri
+	 *            - one of the targets, determines the LDX endpoint
+	 * @param targetURLs
+	 *            - the targets, all on the server of targetUri
+	 * @param linkTypes
+	 * @param gcUrl
+	 *            - can be empty
+	 * @return the index of the triples or null
+	 * @throws NotLoggedInException
+	 * @throws IOException
+	 * @throws TeamRepositoryException
+	 */
+	public LinkTripleIndex getLDXBackLinksViaRest(URI targetUri, Set<String> targetURLs, Set<String> linkTypes,
+			String gcUrl) throws NotLoggedInException, IOException, TeamRepositoryException {
+		LinkTripleIndex result = null;
 		try {
 			String ldxUri = getLinkIndexProviderUri(targetUri);
 			if (ldxUri == null) {
@@ -537,39 +855,78 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 				connection.addRequestHeader(header.getKey(), header.getValue());
 			}
 			String encoding = CharsetEncoding.UTF8.name();
-			String content = "{" + NLS.bind(QUERY_JSON, targetUri.toString(), linkType, gcUrl) + "}"; // add braces
+			String content = "{" + NLS.bind(QUERY_JSON, toJsonValues(targetURLs), toJsonValues(linkTypes), gcUrl) + "}"; // add braces
 			logger.debug("\n... LDX (REST) POST: " + ldxUri + " content:\n" + content + "\n Accept: "
 					+ headers.getValue(HttpUtil.ACCEPT) + " encoding: " + MediaType.JSON.toString());
 
 			byte[] bytes = content.getBytes(encoding);
 			ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
-			IResponse response = createResponse(connection.doPost(stream, bytes.length, MediaType.JSON.toString()));
-
-			String responseContent = response == null ? "[No Response]" : response.getContent();
-			connection.release();
-			logger.debug("\n... response from LDX (REST):\n " + responseContent);
-			if (response != null) {
-				Reader reader = new StringReader(responseContent);
-				result = parseJson(reader);
+			ldxQueryCount.incrementAndGet();
+			IRawRestClientConnection.Response rawResponse = connection.doPost(stream, bytes.length,
+					MediaType.JSON.toString());
+			try {
+				int statusCode = rawResponse.getStatusCode();
+				if (statusCode != 200) {
+					logger.warn("\n... LDX (REST) request failed with status " + statusCode + ": " + ldxUri);
+				} else if (logger.isTraceEnabled()) {
+					// Only read the whole response into memory to trace it
+					IResponse response = createResponse(rawResponse);
+					String responseContent = response == null ? null : response.getContent();
+					logger.trace("\n... response from LDX (REST):\n "
+							+ (responseContent == null ? "[No Response]" : responseContent));
+					if (responseContent != null) {
+						result = parseJson(new StringReader(responseContent));
+					}
+				} else {
+					// The links are read as they arrive
+					InputStream in = rawResponse.getResponseStream();
+					if (in == null) {
+						logger.warn("\n... empty response from LDX (REST): " + ldxUri);
+					} else {
+						try {
+							result = parseJson(new InputStreamReader(in, encoding));
+						} finally {
+							in.close();
+						}
+					}
+				}
+			} finally {
+				connection.release();
 			}
+			logger.debug("\n... response from LDX (REST): "
+					+ (result == null ? "[no links]" : result.size() + " links"));
 		} catch (NotLoggedInException e) {
-			System.err.println(
-					"\n... *** Not Logged In Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString());
+			logger.error("\n... *** Not Logged In Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString());
 			throw e;
 		} catch (TeamRepositoryException e) {
-			System.err.println(
-					"\n... *** Team Repository Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString());
+			logger.error("\n... *** Team Repository Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString());
 			throw e;
 		} catch (IOException e) {
-			System.err.println("\n... *** IO Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString());
+			logger.error("\n... *** IO Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString());
 			throw e;
 		} catch (Exception e) {
-			System.err.println("\n... *** Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString() + " "
-					+ e.getCause().getMessage());
+			logger.error("\n... *** Exception from LDX (REST):\n " + e.getMessage() + " " + e.toString()
+					+ (e.getCause() == null ? "" : " " + e.getCause().getMessage()));
+			logger.trace(e.getMessage(), e);
 		}
 		return result;
 	}
 
+	/**
+	 * @param values
+	 * @return the values as quoted and comma separated JSON strings
+	 */
+	private String toJsonValues(Set<String> values) {
+		StringBuilder json = new StringBuilder();
+		for (String value : values) {
+			if (json.length() > 0) {
+				json.append(", ");
+			}
+			json.append('"').append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+		}
+		return json.toString();
+	}
+
 
 	// https://<yourhostname>/<applicationContext>/linkIndex (e.g.
 	// https://rqmple2.rtp.raleigh.ibm.com:9443/qm/linkIndex)
@@ -586,49 +943,22 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 		return linkIndexProviderUri;
 	}
 
-	private JSONArray parseJson(Reader reader) throws IOException {
-		Object object = JSONObject.parseAny(reader);
-		if (object instanceof JSONObject) {
-			logger.trace("\n...... loaded JSON object: " + object);
-			Object linksObject = ((JSONObject) object).get(LINKS);
-			if (linksObject == null) {
-				logger.warn("\n......... links not found (null): " + linksObject);
-				return null;
-			}
-			if (linksObject instanceof JSONArray) {
-				logger.trace("\n......... links found: " + linksObject);
-				JSONArray links = (JSONArray) linksObject;
-				return links;
-			}
-
-			logger.warn("\n...... *** links is not JSONArray: " + linksObject);
+	/**
+	 * Read the links of an LDX response as a stream. Only the source URL, link
+	 * type and target URL of the links are kept.
+	 * 
+	 * @param reader
+	 * @return the index of the links or null if the response has no links
+	 * @throws IOException
+	 */
+	private LinkTripleIndex parseJson(Reader reader) throws IOException {
+		LinkTripleIndex links = LinkTripleIndex.read(reader);
+		if (links == null) {
+			logger.warn("\n......... links not found in LDX response");
 			return null;
 		}
-		logger.warn("\n...... *** JSON object not found: " + object);
-		return null;
-	}
-
-	private static final String LINKS = "links";
-	private static final String TRIPLE_SOURCE_URL = "sourceURL";
-	private static final String LINK_TYPE = "linkType";
-	private static final String TRIPLE_TARGET_URL = "targetURL";
-
-	public boolean isLinkInTripleEqual(JSONObject triple, String sourceURL, String linkType, String targetURL) {
-		if (triple == null) {
-			logger.warn("\n... *** null triple"); // should not happen
-			return false;
-		}
-
-		boolean result = triple.get(TRIPLE_SOURCE_URL).equals(sourceURL) && triple.get(LINK_TYPE).equals(linkType)
-				&& triple.get(TRIPLE_TARGET_URL).equals(targetURL);
-
-		logger.debug("\n..... is triple equal source: " + triple.get(TRIPLE_SOURCE_URL) + " = " + sourceURL + " : "
-				+ triple.get(TRIPLE_SOURCE_URL).equals(sourceURL) + "\nlinkType:" + triple.get(LINK_TYPE) + " = "
-				+ linkType + " : " + triple.get(LINK_TYPE).equals(linkType) + "\nTarget:"
-				+ triple.get(TRIPLE_TARGET_URL) + " = " + targetURL + " : "
-				+ triple.get(TRIPLE_TARGET_URL).equals(targetURL));
-
-		return result;
+		logger.trace("\n......... links found: " + links.size());
+		return links;
 	}
 
 	private boolean isOverrideQueryResultSizeLimit() {
@@ -638,6 +968,21 @@ public class ValidateOSLCLinksCommand extends AbstractTeamRepositoryCommand impl
 
 	@Override
 	public String helpSpecificUsage() {
-		return "";
+		return " [" + IWorkItemCommandLineConstants.PREFIX_SWITCH + SWITCH_NO_CONFIGURATION_CACHE + "]" + " ["
+				+ IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE_EXAMPLE + "]" + " ["
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE + "]" + " [" + PARAMETER_LDX_BATCH_SIZE
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR + PARAMETER_LDX_BATCH_SIZE_EXAMPLE + "]"
+				+ " [" + PARAMETER_VERIFY_THREADS + IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ PARAMETER_VERIFY_THREADS_EXAMPLE + "]" + " [" + PARAMETER_MAX_PER_HOST
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR + PARAMETER_MAX_PER_HOST_EXAMPLE + "]"
+				+ " [" + PARAMETER_TARGET_CACHE_ENTRIES + IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ PARAMETER_TARGET_CACHE_ENTRIES_EXAMPLE + "]" + " [" + PARAMETER_TARGET_CACHE_HOURS
+				+ IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR + PARAMETER_TARGET_CACHE_HOURS_EXAMPLE
+				+ "]" + " [" + PARAMETER_TARGET_CACHE_FILE + IWorkItemCommandLineConstants.INFIX_PARAMETER_VALUE_SEPARATOR
+				+ PARAMETER_TARGET_CACHE_FILE_EXAMPLE + "]";
 	}
 }
\ No newline at end of file
@@ -8,7 +8,6 @@
 package com.ibm.js.team.workitem.commandline.commands;
 
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.List;
 
 
@@ -19,20 +18,20 @@ import com.ibm.js.team.workitem.commandline.IWorkItemCommandLineConstants;
 import com.ibm.js.team.workitem.commandline.OperationResult;
 import com.ibm.js.team.workitem.commandline.framework.AbstractTeamRepositoryCommand;
 import com.ibm.js.team.workitem.commandline.framework.WorkItemCommandLineException;
-import com.ibm.js.team.workitem.commandline.helper.RepositoryStateModel;
+import com.ibm.js.team.workitem.commandline.helper.RepositoryStateGraph;
+import com.ibm.js.team.workitem.commandline.helper.WorkItemLinkSnapshot;
+import com.ibm.js.team.workitem.commandline.helper.WorkItemLinkSnapshot.LinkedWorkItemStatus;
 import com.ibm.js.team.workitem.commandline.helper.WorkItemLocalLinkHelper;
 import com.ibm.js.team.workitem.commandline.helper.WorkItemStateHelper;
 import com.ibm.js.team.workitem.commandline.parameter.ParameterManager;
+import com.ibm.js.team.workitem.commandline.utils.PagedWorkItemIterator;
 import com.ibm.js.team.workitem.commandline.utils.ProcessAreaUtil;
 import com.ibm.js.team.workitem.commandline.utils.QueryUtil;
 import com.ibm.js.team.workitem.commandline.utils.WorkItemUtil;
-import com.ibm.team.links.common.IItemReference;
 import com.ibm.team.links.common.ILink;
 import com.ibm.team.links.common.IReference;
-import com.ibm.team.links.common.registry.ILinkType;
 import com.ibm.team.process.common.IProjectArea;
 import com.ibm.team.repository.common.IAuditableHandle;
-import com.ibm.team.repository.common.IItemHandle;
 import com.ibm.team.repository.common.TeamRepositoryException;
 import com.ibm.team.workitem.common.model.IWorkItem;
 import com.ibm.team.workitem.common.model.IWorkItemHandle;
@@ -65,12 +64,24 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 	private static final String SWITCH_LOCAL = "local";
 	private static final String SWITCH_LINKS_ONLY = "linksOnly";
 	private static final String SWITCH_STATES_ONLY = "statesOnly";
+	private static final String SWITCH_VISITED_PER_WORK_ITEM = "visitedPerWorkItem";
+	// Resolve the linked work items with the full profile and log their details
+	private static final String SWITCH_LINK_DETAILS = "linkDetails";
 	private boolean isLocal= false;
 	private boolean isLinksOnly= false;
 	private boolean isStatesOnly= false;
+	private boolean isVisitedPerWorkItem= false;
+	private boolean isLinkDetails= false;
 	private boolean isVerbose= false;
-	private boolean useRest= true;
+	private volatile boolean useRest= true;
 	private int depth= 3;
+	private int stateChunkSize= 50;
+	private int maxStates= 0;
+	private int threads= 1;
+	private int maxConnections= 4;
+	private int stateCacheEntries= 10000;
+	private int stateCacheMegabytes= 64;
+	private int pageSize= PagedWorkItemIterator.DEFAULT_PAGE_SIZE;
 	public String repositoryUrl;
 	private String exportFolderPath;
 	private String searchString; 
@@ -87,6 +98,24 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 	private static final String PARAMETER_DEPTH = "depth";
 	private static final String PARAMETER_DEPTH_EXAMPLE = "3";
 
+	// Parameter for the number of states fetched with one request
+	private static final String PARAMETER_STATE_CHUNK_SIZE = "stateChunkSize";
+	private static final String PARAMETER_STATE_CHUNK_SIZE_EXAMPLE = "50";
+
+	// Parameter to limit the number of work item states validated via REST
+	private static final String PARAMETER_MAX_STATES = "maxStates";
+	private static final String PARAMETER_MAX_STATES_EXAMPLE = "100";
+
+	// Parameter for the number of raw item states fetched at the same time
+	private static final String PARAMETER_MAX_CONNECTIONS = "maxConnections";
+	private static final String PARAMETER_MAX_CONNECTIONS_EXAMPLE = "4";
+
+	// Parameters to bound the cache of raw item states
+	private static final String PARAMETER_STATE_CACHE_ENTRIES = "stateCacheEntries";
+	private static final String PARAMETER_STATE_CACHE_ENTRIES_EXAMPLE = "10000";
+	private static final String PARAMETER_STATE_CACHE_MB = "stateCacheMB";
+	private static final String PARAMETER_STATE_CACHE_MB_EXAMPLE = "64";
+
 	
 	// The output file
 	private WorkItemStateHelper fWorkItemStateHelper;
@@ -142,9 +171,20 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_WORKITEM_ID_PROPERTY,
 				IWorkItemCommandLineConstants.PARAMETER_WORKITEM_ID_PROPERTY_EXAMPLE);
 		getParameterManager().syntaxAddSwitch(PARAMETER_DEPTH, PARAMETER_DEPTH_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_STATE_CHUNK_SIZE, PARAMETER_STATE_CHUNK_SIZE_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_MAX_STATES, PARAMETER_MAX_STATES_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_MAX_CONNECTIONS, PARAMETER_MAX_CONNECTIONS_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_STATE_CACHE_ENTRIES, PARAMETER_STATE_CACHE_ENTRIES_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(PARAMETER_STATE_CACHE_MB, PARAMETER_STATE_CACHE_MB_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_THREADS,
+				IWorkItemCommandLineConstants.PARAMETER_THREADS_EXAMPLE);
+		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE,
+				IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE_EXAMPLE);
 		getParameterManager().syntaxAddSwitch(SWITCH_TRACE);
 		getParameterManager().syntaxAddSwitch(SWITCH_DEBUG);
 		getParameterManager().syntaxAddSwitch(SWITCH_VERBOSE);
+		getParameterManager().syntaxAddSwitch(SWITCH_VISITED_PER_WORK_ITEM);
+		getParameterManager().syntaxAddSwitch(SWITCH_LINK_DETAILS);
 		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_QUERY_NAME,
 				IWorkItemCommandLineConstants.PARAMETER_QUERY_NAME_EXAMPLE);
 		getParameterManager().syntaxAddSwitch(IWorkItemCommandLineConstants.PARAMETER_PASSWORD_FILE_PROPERTY,
@@ -169,7 +209,15 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 				+ IWorkItemCommandLineConstants.PARAMETER_PASSWORD_PROPERTY
 				+ PARAMETER_EXPORT_FOLDER
 				+ IWorkItemCommandLineConstants.PARAMETER_WORKITEM_ID_PROPERTY
-				+ IWorkItemCommandLineConstants.PARAMETER_SEARCH_STRING;
+				+ IWorkItemCommandLineConstants.PARAMETER_SEARCH_STRING
+				+ IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE
+				+ PARAMETER_STATE_CHUNK_SIZE
+				+ PARAMETER_MAX_STATES
+				+ PARAMETER_MAX_CONNECTIONS
+				+ PARAMETER_STATE_CACHE_ENTRIES
+				+ PARAMETER_STATE_CACHE_MB
+				+ IWorkItemCommandLineConstants.PARAMETER_THREADS
+				+ IWorkItemCommandLineConstants.PREFIX_SWITCH + SWITCH_LINK_DETAILS;
 	}
 
 	/*
@@ -186,6 +234,10 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 			isLinksOnly= true;
 		if (getParameterManager().hasSwitch(SWITCH_STATES_ONLY))
 			isStatesOnly= true;
+		if (getParameterManager().hasSwitch(SWITCH_VISITED_PER_WORK_ITEM))
+			isVisitedPerWorkItem= true;
+		if (getParameterManager().hasSwitch(SWITCH_LINK_DETAILS))
+			isLinkDetails= true;
 		if (getParameterManager().hasSwitch(SWITCH_VERBOSE)) {
 			isVerbose= true;
 		}
@@ -213,6 +265,15 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 //		}
 //		IQueryDescriptor query = getWorlkItemQuery(projectArea, queryName, sharingTargetNames);
 		
+		stateChunkSize = consumeNumberParameter(PARAMETER_STATE_CHUNK_SIZE, stateChunkSize);
+		maxStates = consumeNumberParameter(PARAMETER_MAX_STATES, maxStates);
+		maxConnections = consumeNumberParameter(PARAMETER_MAX_CONNECTIONS, maxConnections);
+		stateCacheEntries = consumeNumberParameter(PARAMETER_STATE_CACHE_ENTRIES, stateCacheEntries);
+		stateCacheMegabytes = consumeNumberParameter(PARAMETER_STATE_CACHE_MB, stateCacheMegabytes);
+		threads = consumeNumberParameter(IWorkItemCommandLineConstants.PARAMETER_THREADS, threads);
+		pageSize = consumeNumberParameter(IWorkItemCommandLineConstants.PARAMETER_PAGE_SIZE,
+				PagedWorkItemIterator.DEFAULT_PAGE_SIZE);
+
 		String workItemId = getParameterManager()
 				.consumeParameter(IWorkItemCommandLineConstants.PARAMETER_WORKITEM_ID_PROPERTY);
 		if (workItemId != null) workItemId= workItemId.trim();
@@ -248,8 +309,16 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 		}
 		
 		if (workItemId != null) {			
-			validateStates(workItemId);
-			validateLinks(workItemId);
+			// The only lookup by ID, the states and links use the work item found
+			IWorkItem workItem = WorkItemUtil.findWorkItemByID(workItemId, IWorkItem.SMALL_PROFILE, getWorkItemCommon(), getMonitor());
+			if (workItem == null) {
+				logger.error("Work Item " + workItemId + " specified but not found.");
+				setFailed();
+			} else {
+				logger.trace("Found Work Item handle for type: " + workItem.getWorkItemType());
+				validateStates(workItem);
+				validateLinks(workItem);
+			}
 		} else {
 			if (queryName == null) {
 	 			throw new WorkItemCommandLineException("WorkItemId or QueryId parameter must be provided.");
@@ -269,23 +338,20 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 				IQueryResult<IResult> results = QueryUtil.getUnresolvedQueryResult(query, true);
 
 				ResultSize resultSize = results.getResultSize(getMonitor());
-				List<IWorkItemHandle> workItems = new ArrayList<IWorkItemHandle>(resultSize.getTotal());
-				while (results.hasNext(null)) {
-					IResult result = results.next(null);
-					workItems.add((IWorkItemHandle) result.getItem());
-				}
-				results= null; // clear list;
 				logger.debug("\nQuery " + queryName + " result size: " + resultSize.getTotal());
 
-				for (IWorkItemHandle workItemHandle : workItems) {
+				// The handles are streamed from the query result page by page.
+				// The resolved work items are used, the states and links are fetched per work item
+				PagedWorkItemIterator resolvedWorkItems = WorkItemUtil.resolveWorkItems(
+						QueryUtil.getWorkItemHandles(results, getMonitor()),
+						IWorkItem.ID_PROFILE, pageSize, getWorkItemCommon(), getMonitor());
+				while (resolvedWorkItems.hasNext()) {
+					IWorkItem workItem = resolvedWorkItems.next();
 					try { 
-						logger.trace("Resolving work item handle: " + workItemHandle.getItemId().getUuidValue());
-						IWorkItem workItem = WorkItemUtil.resolveWorkItem(workItemHandle, IWorkItem.FULL_PROFILE, getWorkItemCommon(),
-								getMonitor());
-						validateStates(""+ workItem.getId());
-						validateLinks(workItem.getId() + "");
+						validateStates(workItem);
+						validateLinks(workItem);
 					} catch (Exception e) {
-						logger.warn("Exception resolving work item handle: " + workItemHandle.getItemId().getUuidValue());
+						logger.warn("Exception validating work item: " + workItem.getId());
 						if (logger.isTraceEnabled()) {
 							e.printStackTrace();
 						}
@@ -294,6 +360,14 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 			}
 		}
 		
+		if (fWorkItemStateHelper != null) {
+			logger.info(fWorkItemStateHelper.getVisitedStatistics());
+			String cacheStatistics = fWorkItemStateHelper.getRawStateCacheStatistics();
+			if (cacheStatistics != null) {
+				logger.info(cacheStatistics);
+			}
+			fWorkItemStateHelper.dispose();
+		}
 		logger.trace("All state and link validations complete");
 		
 		return getResult();
@@ -346,8 +420,9 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 	 * @return
 	 * @throws TeamRepositoryException
 	 */
-	private void validateLinks(String workItemId)
+	private void validateLinks(IWorkItem workItem)
 			throws TeamRepositoryException {
+		String workItemId = "" + workItem.getId();
 		if (isStatesOnly) {
 			logger.trace("Validate links skipped due to statesonly parameter.");
 			return;
@@ -355,40 +430,15 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 		try {
 			//logger.debug("Fetching linked items for work item " + workItemId + " in repository " + repositoryUrl);
 			
-			List<IReference> allReferenceLists=  getWorkItemLocalLinkHelper(workItemId).getAllReferences(getTeamRepository(), Integer.decode(workItemId).intValue());
+			WorkItemLinkSnapshot snapshot= getWorkItemLocalLinkHelper(workItemId).getLinkSnapshot(getTeamRepository(),
+					workItem, getMonitor());
 
-			for (IReference ref : allReferenceLists) {
+			for (IReference ref : snapshot.getReferences()) {
 				if (ref.isItemReference() ) {
-					ILinkType linkType= ref.getLink().getLinkType();
-					URI uri= ref.createURI();
 					ILink link= ref.getLink();
 					logger.debug("\nValidating Link for work item: " + workItemId + " linktype:" + link.getLinkTypeId() 
 					+ " s: " + link.getSourceRef().getComment() 
 					+ " >> t: " + link.getTargetRef().getComment() + "[ " + link.getSourceRef() + " > " + link.getSourceRef() + " ]");
-
-					if (link.getSourceRef().isItemReference()) {
-						IItemHandle source= getItemHandle(link.getSourceRef());
-						try {
-							IWorkItem workItem= fetchWorkItem((IWorkItemHandle)source);
-
-						} catch (Exception e) {
-							logger.trace("Fetching linked items for work item " + workItemId + " in repository " + repositoryUrl + " ... Reading Work Item handle...");
-							logger.error("\n*Exception fetching: " + source.getItemId().getUuidValue()
-									+ e + "\n" 
-									+ e.getMessage());
-						}
-					}
-					if (link.getTargetRef().isItemReference()) {						
-						IItemHandle target= getItemHandle(link.getTargetRef());
-						try {
-							IWorkItem workItem= fetchWorkItem((IWorkItemHandle)target);
-						} catch (Exception e) {
-							logger.trace("Fetching linked items for work item " + workItemId + " in repository " + repositoryUrl + " ... Reading Work Item handle...");
-							logger.error("\n*Exception fetching: " + target.getItemId().getUuidValue()
-									+ e + "\n" 
-									+ e.getMessage());
-						}
-					}
 // Code from WorkItemPostDeleteTask to delete the link when a work item is deleted. TODO: Delet					
 //					IItemHandle srcItem= getItemHandle(cur.getSourceRef());
 //					IItemHandle tgtItem= getItemHandle(cur.getTargetRef());
@@ -397,6 +447,19 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 //					}
 				}
 			}
+			// The linked work items are checked with one request that only
+			// fetches their IDs
+			LinkedWorkItemStatus linkedItems= snapshot.checkLinkedWorkItems(getTeamRepository().itemManager(), getMonitor());
+			logger.trace("\nChecked " + snapshot.getLinkedWorkItems().size() + " linked items for work item " + workItemId);
+			for (IWorkItemHandle missingItem : linkedItems.getMissing()) {
+				logger.error("\n*Missing linked item: " + missingItem.getItemId().getUuidValue() );
+			}
+			for (IWorkItemHandle deniedItem : linkedItems.getPermissionDenied()) {
+				logger.error("\n*No permission to read linked item: " + deniedItem.getItemId().getUuidValue() );
+			}
+			if (isLinkDetails) {
+				logLinkedWorkItemDetails(workItemId, linkedItems.getReadable());
+			}
 						
 		} catch (Exception e) {
 			logger.error("\n*** Exception validating states for " + workItemId + " in repository " + repositoryUrl + "\n");
@@ -408,33 +471,31 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 
 	}
 
-	private IWorkItem fetchWorkItem(IWorkItemHandle handle) {
-		IWorkItem workItem= null; 
-		if (logger.isTraceEnabled()) {
-			logger.debug("\n sFetching item: " +  handle.getItemId().getUuidValue());
-		}
-		try {
-			workItem = WorkItemUtil.resolveWorkItem(handle, IWorkItem.FULL_PROFILE, getWorkItemCommon(),getMonitor());
-		} catch (Exception e) {
-			logger.error("\n*Exception* Fetching item: " + handle.getItemId().getUuidValue() + "\n" 
-					+ e + "\n"
-					+ e.getMessage());
-
-		}
-		if (logger.isTraceEnabled()) {
-			logger.trace("\nFetched item: " + handle.getItemId().getUuidValue() );
-		}
-		if (workItem == null) {
-			logger.warn("\n*Missing linked item: " + handle.getItemId().getUuidValue() );
+	/**
+	 * Resolve the linked work items with the full profile and log their
+	 * details. Only used if the details are requested.
+	 * 
+	 * @param workItemId
+	 * @param linkedItems
+	 * @throws TeamRepositoryException
+	 */
+	private void logLinkedWorkItemDetails(String workItemId, List<IWorkItemHandle> linkedItems)
+			throws TeamRepositoryException {
+		if (linkedItems.isEmpty()) {
+			return;
 		}
-		return workItem;
-	}
-	private IItemHandle getItemHandle(IReference ref) {
-		if (ref != null && ref.isItemReference()) {
-			return ((IItemReference)ref).getReferencedItem();
+		List<IWorkItem> workItems= WorkItemUtil.resolveWorkItems(linkedItems, IWorkItem.FULL_PROFILE, getWorkItemCommon(), getMonitor());
+		for (IWorkItem linkedItem : workItems) {
+			if (linkedItem == null) {
+				continue;
+			}
+			logger.info("\nLinked item of work item " + workItemId + ": " + linkedItem.getId() 
+					+ " type: " + linkedItem.getWorkItemType() 
+					+ " state: " + (linkedItem.getState2() == null ? "[none]" : linkedItem.getState2().getStringIdentifier()) 
+					+ " summary: " + linkedItem.getHTMLSummary().getPlainText());
 		}
-		return null;
 	}
+
 	/**
 	 * Export the data to a CSV file
 	 * 
@@ -444,19 +505,20 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 	 * @return
 	 * @throws TeamRepositoryException
 	 */
-	private void validateStates(String workItemId)
+	private void validateStates(IWorkItem workItem)
 			throws TeamRepositoryException {
+		String workItemId = "" + workItem.getId();
 		if (isLinksOnly) {
 			logger.trace("Validate states skipped due to linksonly parameter.");
 			return;
 		}
 
 		try {
-			logger.info("Fetching states for work item " + workItemId + " in repository " + repositoryUrl + " ... Reading Work Item handle...");
-			List<RepositoryStateModel> stateList= getWorkItemStateList(workItemId);
-			if (stateList == null) return;
-			logger.info("... Fetched " + stateList.size() + " states... validating...");
-			getWorkItemStateHelper(workItemId).validateWorkItemStates(this, stateList, searchString);
+			logger.info("Fetching states for work item " + workItemId + " in repository " + repositoryUrl + " ... fetching all state handles...");
+			RepositoryStateGraph stateGraph= getWorkItemStateHelper(workItemId).fetchWorkItemStates(workItemId, workItem, this);
+			if (stateGraph == null) return;
+			logger.info("... Fetched " + stateGraph.size() + " states... validating...");
+			getWorkItemStateHelper(workItemId).validateWorkItemStates(this, stateGraph, searchString);
 //			for (WorkItemStateModel stateModel: stateList) {
 //			}
 			logger.info("Complete.\n==== Validation complete for work item " + workItemId + " in repository " + repositoryUrl + "\n");
@@ -471,26 +533,6 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 
 	}
 
-	/**
-	 */
-	private List<RepositoryStateModel> getWorkItemStateList(String workItemId)
-			throws TeamRepositoryException, WorkItemCommandLineException {
-		IWorkItem workItemHandle = null;
-		List<RepositoryStateModel> stateList= null;
-		if (workItemId != null) {
-			workItemHandle = WorkItemUtil.findWorkItemByID(workItemId, IWorkItem.SMALL_PROFILE, getWorkItemCommon(), getMonitor());
-			if (workItemHandle == null) {
-				logger.error("Work Item " + workItemId + " specified but not found.");
-				return null;
-			}
-			logger.trace("Found Work Item handle for type: " + workItemHandle.getWorkItemType() + " ... fetching all state handles..." );
-		}
-		if (workItemHandle != null) {
-			stateList= getWorkItemStateHelper(workItemId).fetchWorkItemStates(workItemId, workItemHandle, this); 
-		}
-		return stateList;
-	}
-
 	/**
 	 * Get the getWorkItemExportHelper create it if it does not yet exist.
 	 * 
@@ -515,6 +557,45 @@ public class ValidateWorkItemStatesCommand extends AbstractTeamRepositoryCommand
 		return depth;
 	}
 
+	public int getStateChunkSize() {
+		return stateChunkSize;
+	}
+
+	/**
+	 * @return the maximum number of states validated via REST per work item, 0
+	 *         for all states
+	 */
+	public int getMaxStates() {
+		return maxStates;
+	}
+
+	/**
+	 * @return true if states visited for one work item are validated again for
+	 *         the next work item
+	 */
+	public boolean isVisitedPerWorkItem() {
+		return isVisitedPerWorkItem;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return the number of raw item states fetched at the same time
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public int getStateCacheEntries() {
+		return stateCacheEntries;
+	}
+
+	public int getStateCacheMegabytes() {
+		return stateCacheMegabytes;
+	}
+
 	public boolean isUseRest() {
 		return useRest && !isLocal;
 	}
@@ -92,6 +92,34 @@ public abstract class AbstractCommand implements IWorkItemCommand {
 		return params;
 	}
 
+	/**
+	 * Consume a parameter that provides a positive number.
+	 * 
+	 * @param name
+	 *            - the name of the parameter
+	 * @param defaultValue
+	 *            - the value to use if the parameter is not provided
+	 * @return the number provided or the default value
+	 * @throws WorkItemCommandLineException
+	 *             if the value is not a positive number
+	 */
+	protected int consumeNumberParameter(String name, int defaultValue) {
+		String value = getParameterManager().consumeParameter(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		int number;
+		try {
+			number = Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new WorkItemCommandLineException("Parameter " + name + " is not a number: " + value);
+		}
+		if (number < 1) {
+			throw new WorkItemCommandLineException("Parameter " + name + " must be greater than 0: " + value);
+		}
+		return number;
+	}
+
 	/**
 	 * Set the parameter manager used
 	 * 
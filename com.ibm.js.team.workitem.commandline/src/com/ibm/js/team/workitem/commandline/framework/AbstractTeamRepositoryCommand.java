@@ -239,7 +239,7 @@ public abstract class AbstractTeamRepositoryCommand extends AbstractCommand {
 	}
 	
 	private HashMap<String, ITeamRawRestServiceClient> repoClients = new HashMap<String, ITeamRawRestServiceClient>();
-	public ITeamRawRestServiceClient getRestClient(URI targetUri) throws TeamRepositoryException {
+	public synchronized ITeamRawRestServiceClient getRestClient(URI targetUri) throws TeamRepositoryException {
 		String repoUri = getRepositoryUri(targetUri);
 		ITeamRawRestServiceClient restClient = repoClients.get(repoUri);
 		if (restClient == null) {
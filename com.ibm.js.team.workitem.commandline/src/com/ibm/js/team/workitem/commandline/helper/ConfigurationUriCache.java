@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.ibm.team.repository.common.IItemHandle;
+
+/**
+ * Cache for the global configuration URI of work item links. The
+ * configuration is selected by the process configuration of the project area
+ * from the link type and the planned for or found in attribute of the work
+ * item, so the key is made of the project area, the link type, planned for and
+ * found in.
+ *
+ * Invalidation rules:
+ *
+ * - The entries are kept for one run of a command only, a new cache is used
+ * for every run and clear() drops all entries. Entries are not dropped during
+ * a run, a change of the process configuration while the command runs is
+ * only seen by the next run or with the cache switched off.
+ *
+ * - An empty result is cached like any other result, the caller decides if it
+ * asks again with a different link type, which is a different key.
+ *
+ * The cache counts the server calls it avoided. The cache is thread safe.
+ *
+ */
+public class ConfigurationUriCache {
+
+	private static final String NONE = "[none]";
+
+	private final Map<String, String> fEntries = new HashMap<String, String>();
+	private long fHits = 0;
+	private long fMisses = 0;
+
+	/**
+	 * Create the key for a lookup.
+	 *
+	 * @param projectAreaId
+	 *            - the UUID of the project area
+	 * @param linkTypeId
+	 * @param plannedFor
+	 *            - the planned for attribute of the work item or null
+	 * @param foundIn
+	 *            - the found in attribute of the work item or null
+	 * @return the key
+	 */
+	public static String createKey(String projectAreaId, String linkTypeId, IItemHandle plannedFor,
+			IItemHandle foundIn) {
+		return projectAreaId + "|" + linkTypeId + "|" + getId(plannedFor) + "|" + getId(foundIn);
+	}
+
+	private static String getId(IItemHandle handle) {
+		return handle == null ? NONE : handle.getItemId().getUuidValue();
+	}
+
+	/**
+	 * Test if the key is cached and count the lookup.
+	 *
+	 * @param key
+	 * @return true if the URI for the key is cached
+	 */
+	public synchronized boolean contains(String key) {
+		if (fEntries.containsKey(key)) {
+			fHits++;
+			return true;
+		}
+		fMisses++;
+		return false;
+	}
+
+	/**
+	 * @param key
+	 * @return the cached URI, which can be null or empty
+	 */
+	public synchronized String get(String key) {
+		return fEntries.get(key);
+	}
+
+	/**
+	 * @param key
+	 * @param configurationUri
+	 *            - the URI returned by the server, can be null or empty
+	 */
+	public synchronized void put(String key, String configurationUri) {
+		fEntries.put(key, configurationUri);
+	}
+
+	/**
+	 * Drop all entries. The counters are kept.
+	 */
+	public synchronized void clear() {
+		fEntries.clear();
+	}
+
+	/**
+	 * @return the number of server calls avoided
+	 */
+	public synchronized long getHits() {
+		return fHits;
+	}
+
+	/**
+	 * @return the number of server calls made
+	 */
+	public synchronized long getMisses() {
+		return fMisses;
+	}
+
+	/**
+	 * @return the counters and the size of the cache
+	 */
+	public synchronized String getStatistics() {
+		return "Configuration URI cache: " + fHits + " server calls avoided, " + fMisses + " server calls, "
+				+ fEntries.size() + " entries.";
+	}
+}
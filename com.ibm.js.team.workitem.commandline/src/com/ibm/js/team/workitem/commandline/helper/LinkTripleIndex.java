@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.ibm.js.team.workitem.commandline.utils.JsonStreamReader;
+
+/**
+ * The link triples returned by a link index (LDX) query, indexed by source URL,
+ * link type and target URL. Checking if a link is in the response takes one
+ * lookup, regardless of the number of triples.
+ *
+ */
+public class LinkTripleIndex {
+
+	public static final String LINKS = "links";
+	public static final String TRIPLE_SOURCE_URL = "sourceURL";
+	public static final String TRIPLE_LINK_TYPE = "linkType";
+	public static final String TRIPLE_TARGET_URL = "targetURL";
+
+	// URLs and link types do not contain a line break
+	private static final char SEPARATOR = '\n';
+
+	private final Set<String> fTriples = new HashSet<String>();
+
+	/**
+	 * Read the triples of a response as a stream. Only the source URL, link
+	 * type and target URL of each triple are kept, all other values are
+	 * skipped without being materialized.
+	 *
+	 * @param reader
+	 *            - the JSON response
+	 * @return the index or null if the response has no "links" array
+	 * @throws IOException
+	 *             if the response can not be read or is not valid JSON
+	 */
+	public static LinkTripleIndex read(Reader reader) throws IOException {
+		JsonStreamReader json = new JsonStreamReader(reader);
+		if (!json.isObject()) {
+			return null;
+		}
+		LinkTripleIndex index = null;
+		json.beginObject();
+		while (json.hasNext()) {
+			String name = json.nextName();
+			if (LINKS.equals(name) && json.isArray()) {
+				index = new LinkTripleIndex();
+				readLinks(json, index);
+			} else {
+				json.skipValue();
+			}
+		}
+		json.endObject();
+		return index;
+	}
+
+	private static void readLinks(JsonStreamReader json, LinkTripleIndex index) throws IOException {
+		json.beginArray();
+		while (json.hasNext()) {
+			if (!json.isObject()) {
+				json.skipValue();
+				continue;
+			}
+			String sourceURL = null;
+			String linkType = null;
+			String targetURL = null;
+			json.beginObject();
+			while (json.hasNext()) {
+				String name = json.nextName();
+				if (TRIPLE_SOURCE_URL.equals(name) && json.isString()) {
+					sourceURL = json.nextString();
+				} else if (TRIPLE_LINK_TYPE.equals(name) && json.isString()) {
+					linkType = json.nextString();
+				} else if (TRIPLE_TARGET_URL.equals(name) && json.isString()) {
+					targetURL = json.nextString();
+				} else {
+					json.skipValue();
+				}
+			}
+			json.endObject();
+			index.add(sourceURL, linkType, targetURL);
+		}
+		json.endArray();
+	}
+
+	/**
+	 * Add a triple. Incomplete triples are ignored.
+	 *
+	 * @param sourceURL
+	 * @param linkType
+	 * @param targetURL
+	 */
+	public void add(String sourceURL, String linkType, String targetURL) {
+		if (sourceURL == null || linkType == null || targetURL == null) {
+			return;
+		}
+		fTriples.add(createKey(sourceURL, linkType, targetURL));
+	}
+
+	/**
+	 * Add the triples of another index.
+	 *
+	 * @param index
+	 */
+	public void addAll(LinkTripleIndex index) {
+		fTriples.addAll(index.fTriples);
+	}
+
+	/**
+	 * @param sourceURL
+	 * @param linkType
+	 * @param targetURL
+	 * @return true if the triple is in the index
+	 */
+	public boolean contains(String sourceURL, String linkType, String targetURL) {
+		if (sourceURL == null || linkType == null || targetURL == null) {
+			return false;
+		}
+		return fTriples.contains(createKey(sourceURL, linkType, targetURL));
+	}
+
+	public int size() {
+		return fTriples.size();
+	}
+
+	private static String createKey(String sourceURL, String linkType, String targetURL) {
+		StringBuilder key = new StringBuilder(sourceURL.length() + linkType.length() + targetURL.length() + 2);
+		key.append(sourceURL).append(SEPARATOR).append(linkType).append(SEPARATOR).append(targetURL);
+		return key.toString();
+	}
+}
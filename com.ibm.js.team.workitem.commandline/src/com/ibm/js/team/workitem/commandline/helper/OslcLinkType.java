@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.team.workitem.common.model.WorkItemLinkTypes;
+
+/**
+ * The work item link types that are validated as OSLC links. For each link
+ * type the registry knows the OSLC link type stored in the link index (LDX),
+ * the OSLC link type of the backlink in the RDF of the target and the system
+ * of the target.
+ *
+ * OSLC types are defined at:
+ * http://docs.oasis-open.org/oslc-domains/cm/v3.0/cm-v3.0-part2-change-mgt-vocab.html
+ *
+ * Note see also: LinkTypeDTO[] linkTypes= WorkItemLinksData.linkTypes.
+ *
+ * The registry is immutable and can be shared by threads.
+ *
+ */
+public enum OslcLinkType {
+
+	RELATED_REQUIREMENT(WorkItemLinkTypes.RELATED_REQUIREMENT, "http://open-services.net/ns/cm#affectsRequirement",
+			"http://open-services.net/ns/rm#affectedBy", SystemType.RM, true),
+	AFFECTS_EXECUTION_RESULT(WorkItemLinkTypes.AFFECTS_EXECUTION_RESULT,
+			"http://open-services.net/ns/cm#affectsTestResult",
+			"http://open-services.net/ns/qm#affectedByChangeRequest", SystemType.QM, true),
+	BLOCKS_EXECUTION_RECORD(WorkItemLinkTypes.BLOCKS_EXECUTION_RECORD,
+			"http://open-services.net/ns/cm#blocksTestExecutionRecord",
+			"http://open-services.net/ns/qm#blockedByChangeRequest", SystemType.QM, true),
+	IMPLEMENTS_REQUIREMENT(WorkItemLinkTypes.IMPLEMENTS_REQUIREMENT,
+			"http://open-services.net/ns/cm#implementsRequirement", "http://open-services.net/ns/rm#implementedBy",
+			SystemType.RM, true),
+	RELATED_WORK_ITEM(WorkItemLinkTypes.RELATED_WORK_ITEM, "http://open-services.net/ns/cm#relatedChangeRequest",
+			"http://open-services.net/ns/cm#relatedChangeRequest", SystemType.RM, true),
+	RELATED_TEST_CASE(WorkItemLinkTypes.RELATED_TEST_CASE, "http://open-services.net/ns/cm#relatedTestCase",
+			"http://open-services.net/ns/qm#relatedChangeRequest", SystemType.QM, true),
+	// RELATED_EXECUTION_RECORD does not return the backlink in the RDF
+	RELATED_EXECUTION_RECORD(WorkItemLinkTypes.RELATED_EXECUTION_RECORD,
+			"http://open-services.net/ns/cm#relatedTestExecutionRecord",
+			"http://open-services.net/ns/qm#relatedChangeRequest", SystemType.QM, true),
+	RELATED_TEST_PLAN(WorkItemLinkTypes.RELATED_TEST_PLAN, "http://open-services.net/ns/cm#relatedTestPlan",
+			"http://open-services.net/ns/qm#relatedChangeRequest", SystemType.QM, true),
+	TESTED_BY_TEST_CASE(WorkItemLinkTypes.TESTED_BY_TEST_CASE, "http://open-services.net/ns/cm#testedByTestCase",
+			"http://open-services.net/ns/qm#testsChangeRequest", SystemType.QM, true),
+	TRACKS_REQUIREMENT(WorkItemLinkTypes.TRACKS_REQUIREMENT, "http://open-services.net/ns/cm#tracksRequirement", null,
+			SystemType.RM, true),
+	RELATED_TEST_SCRIPT(WorkItemLinkTypes.RELATED_TEST_SCRIPT, "http://open-services.net/ns/cm#relatedTestScript",
+			"http://open-services.net/ns/qm#relatedChangeRequest", SystemType.QM, true),
+	CONTRIBUTES_TO_WORK_ITEM(WorkItemLinkTypes.CONTRIBUTES_TO_WORK_ITEM,
+			"http://open-services.net/ns/cm#trackedWorkItem", "http://open-services.net/ns/cm#tracksWorkItem",
+			SystemType.CCM, true),
+	TRACKS_WORK_ITEM(WorkItemLinkTypes.TRACKS_WORK_ITEM, "http://open-services.net/ns/cm#tracksWorkItem",
+			"http://open-services.net/ns/cm#trackedWorkItem", SystemType.CCM, true),
+	/*
+	 * CCM to CCM links are not checked in the link index because they don't use
+	 * it, only the backlink in the RDF is checked
+	 */
+	AFFECTED_BY_DEFECT(WorkItemLinkTypes.AFFECTED_BY_DEFECT, "http://open-services.net/ns/cm#affectedByDefect",
+			"http://open-services.net/ns/cm#affectsPlanItem", SystemType.CCM, false),
+	AFFECTS_PLAN_ITEM(WorkItemLinkTypes.AFFECTS_PLAN_ITEM, "http://open-services.net/ns/cm#affectsPlanItem",
+			"http://open-services.net/ns/cm#affectedByDefect", SystemType.CCM, false);
+
+	// TODO: add more backlinks
+	// "http://open-services.net/ns/cm#ChangeRequest"
+	// "http://open-services.net/ns/cm#requirementsChangeRequest"
+	// "http://open-services.net/ns/cm#tracksChangeSet"
+
+	public static enum SystemType {
+		CCM, QM, RM
+	}
+
+	private static final Map<String, OslcLinkType> BY_LINK_TYPE_ID;
+	static {
+		Map<String, OslcLinkType> byLinkTypeId = new HashMap<String, OslcLinkType>();
+		for (OslcLinkType linkType : values()) {
+			byLinkTypeId.put(linkType.getLinkTypeId(), linkType);
+		}
+		BY_LINK_TYPE_ID = Collections.unmodifiableMap(byLinkTypeId);
+	}
+
+	// Link types for which no backlink is verified
+	private static final Set<String> EXCLUDED_LINK_TYPE_IDS = Collections.unmodifiableSet(new HashSet<String>(
+			Arrays.asList("relatedArtifact", "com.ibm.team.workitem.linktype.relatedArtifact",
+					"com.ibm.team.workitem.linktype.textualReference", // not needed
+					// "com.ibm.team.workitem.linktype.qm.relatedExecutionRecord" not yet supported
+					WorkItemLinkTypes.RELATED_EXECUTION_RECORD)));
+
+	private final String fLinkTypeId;
+	private final String fOslcLinkType;
+	private final String fReverseOslcLinkType;
+	private final SystemType fTargetSystemType;
+	private final boolean fIsInLinkIndex;
+
+	private OslcLinkType(String linkTypeId, String oslcLinkType, String reverseOslcLinkType,
+			SystemType targetSystemType, boolean isInLinkIndex) {
+		fLinkTypeId = linkTypeId.intern();
+		fOslcLinkType = oslcLinkType;
+		fReverseOslcLinkType = reverseOslcLinkType;
+		fTargetSystemType = targetSystemType;
+		fIsInLinkIndex = isInLinkIndex;
+	}
+
+	/**
+	 * @param linkTypeId
+	 *            - the work item link type ID
+	 * @return the link type or null if it is not an OSLC link type
+	 */
+	public static OslcLinkType fromId(String linkTypeId) {
+		if (linkTypeId == null) {
+			return null;
+		}
+		return BY_LINK_TYPE_ID.get(linkTypeId);
+	}
+
+	/**
+	 * @param linkTypeId
+	 * @return true if the backlink of the link type is not verified
+	 */
+	public static boolean isExcluded(String linkTypeId) {
+		return EXCLUDED_LINK_TYPE_IDS.contains(linkTypeId);
+	}
+
+	/**
+	 * @return the work item link type ID
+	 */
+	public String getLinkTypeId() {
+		return fLinkTypeId;
+	}
+
+	/**
+	 * @return the OSLC link type of the forward link, as stored in the link
+	 *         index
+	 */
+	public String getOslcLinkType() {
+		return fOslcLinkType;
+	}
+
+	/**
+	 * The backlink in the RDF of the target. Example: the link type
+	 * "com.ibm.team.workitem.linktype.tracksworkitem" expects to find the
+	 * backlink "http://open-services.net/ns/cm#trackedWorkItem".
+	 *
+	 * @return the OSLC link type of the backlink or null if it is not known
+	 */
+	public String getReverseOslcLinkType() {
+		return fReverseOslcLinkType;
+	}
+
+	public SystemType getTargetSystemType() {
+		return fTargetSystemType;
+	}
+
+	/**
+	 * @return true if links of the type are checked in the link index of the
+	 *         target server
+	 */
+	public boolean isInLinkIndex() {
+		return fIsInLinkIndex;
+	}
+}
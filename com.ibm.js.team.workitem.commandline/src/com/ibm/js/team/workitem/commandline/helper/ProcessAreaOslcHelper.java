@@ -7,30 +7,28 @@
  *******************************************************************************/
 package com.ibm.js.team.workitem.commandline.helper;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.logging.log4j.Logger;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
 import com.ibm.js.team.workitem.commandline.commands.FindEnumerationIdConflictsCommand;
 import com.ibm.js.team.workitem.commandline.commands.ValidateOSLCLinksCommand.GetRDFResourceParams;
 import com.ibm.js.team.workitem.commandline.framework.AbstractTeamRepositoryCommand;
+import com.ibm.js.team.workitem.commandline.utils.BufferedLog;
+import com.ibm.js.team.workitem.commandline.utils.MultiPatternMatcher;
+import com.ibm.js.team.workitem.commandline.utils.XmlParserUtil;
 import com.ibm.team.calm.foundation.common.HttpHeaders;
 // import com.ibm.team.calm.foundation.common.IHttpClient.HttpAccessException;
 // import com.ibm.team.calm.foundation.common.IHttpClient.IResponse;
@@ -47,7 +45,6 @@ import com.ibm.team.process.internal.common.rest.HttpConstants;
 import com.ibm.team.repository.common.NotLoggedInException;
 import com.ibm.team.repository.common.TeamRepositoryException;
 import com.ibm.team.repository.common.transport.HttpUtil;
-import com.ibm.team.repository.common.transport.HttpUtil.CharsetEncoding;
 import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient;
 import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient.IRawRestClientConnection;
 
@@ -92,52 +89,53 @@ public class ProcessAreaOslcHelper {
 	public static final String PROJECT_AREA_HISTORY_URI_TEMPLATE = "/process/project-areas/$1/history";
 	
 	private static final String ACCEPT_TYPE = "application/xml";
-	public String fetchProjectAreaHistory(FindEnumerationIdConflictsCommand command, String projectAreaId, URI repositoryUri)
+	// The depth of the history entries below the root and the history nodes
+	private static final int HISTORY_ENTRY_DEPTH = 3;
+	private static final String HISTORY_URL_PREFIX = "jp";
+	private static final String HISTORY_URL_ATTRIBUTE = "url";
+	private static final String PROCESS_SPECIFICATION = "process-specification";
+
+	public String fetchProjectAreaHistory(FindEnumerationIdConflictsCommand command, String projectAreaId, URI repositoryUri,
+			BufferedLog log)
 			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
-		String projectAreaHistoryUrl= repositoryUri.toString() + (PROJECT_AREA_HISTORY_URI_TEMPLATE.replace("$1", projectAreaId));
-		
-		getTracingLog().debug("Loading project history: " + projectAreaHistoryUrl);
-
-		ITeamRawRestServiceClient restClient = command.getRestClient(new URI(projectAreaHistoryUrl));
-		IRawRestClientConnection connection = restClient.getConnection(new URI(projectAreaHistoryUrl));
-		HttpHeaders headers = new HttpHeaders();
-		headers.addHeader(HttpUtil.ACCEPT, ACCEPT_TYPE);
-
-		for (Map.Entry<String, String> header : headers.getEntries()) {
-			connection.addRequestHeader(header.getKey(), header.getValue());
-		}
+		String projectAreaHistoryUrl = getProjectAreaHistoryUrl(projectAreaId, repositoryUri);
+		log.debug("Loading project history: " + projectAreaHistoryUrl);
+		return fetchContent(command, projectAreaHistoryUrl, log);
+	}
+	
+	public String fetchProcessAreaXML(FindEnumerationIdConflictsCommand command, String url, BufferedLog log)
+			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
+		log.trace("Loading process area configuration xml: " + url);
+		return fetchContent(command, url, log);
+	}
 
+	private String fetchContent(FindEnumerationIdConflictsCommand command, String url, BufferedLog log)
+			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
+		IRawRestClientConnection connection = openConnection(command, url);
 		String content=null;
-		IRawRestClientConnection.Response response= null;
 		try {
-			StringBuffer buffer = new StringBuffer();
-
-			response = connection.doGet();
-			InputStream responseStream = response.getResponseStream();
+			StringBuilder buffer = new StringBuilder();
+			InputStream responseStream = connection.doGet().getResponseStream();
 			if (responseStream != null) {
-				BufferedReader reader = new BufferedReader(new InputStreamReader(responseStream, HttpConstants.ENCODING_UTF8));
-				char[] chars = new char[1024];
+				Reader reader = new InputStreamReader(responseStream, HttpConstants.ENCODING_UTF8);
+				char[] chars = new char[8192];
 				int read = reader.read(chars);
-				while (read > 0) {
+				while (read >= 0) {
 					buffer.append(chars, 0, read);
 					read = reader.read(chars);
 				}
 			}
 			content= buffer.toString();
 		} catch (Exception e) {
-			getTracingLog().error("Exception reading response: " + e.getMessage());
+			log.error("Exception reading response: " + e.getMessage());
+		} finally {
+			connection.release();
 		}
-		
-		connection.release();
-		
 		return content;
 	}
-	
-	public String fetchProcessAreaXML(FindEnumerationIdConflictsCommand command, String url)
-			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
-
-		getTracingLog().trace("Loading process area configuration xml: " + url);
 
+	private IRawRestClientConnection openConnection(FindEnumerationIdConflictsCommand command, String url)
+			throws URISyntaxException {
 		ITeamRawRestServiceClient restClient = command.getRestClient(new URI(url));
 		IRawRestClientConnection connection = restClient.getConnection(new URI(url));
 		HttpHeaders headers = new HttpHeaders();
@@ -146,32 +144,12 @@ public class ProcessAreaOslcHelper {
 		for (Map.Entry<String, String> header : headers.getEntries()) {
 			connection.addRequestHeader(header.getKey(), header.getValue());
 		}
-
-		String content=null;
-		IRawRestClientConnection.Response response= null;
-		try {
-			StringBuffer buffer = new StringBuffer();
-			response = connection.doGet();
-			InputStream responseStream = response.getResponseStream();
-			if (responseStream != null) {
-				BufferedReader reader = new BufferedReader(new InputStreamReader(responseStream, HttpConstants.ENCODING_UTF8));
-				char[] chars = new char[1024];
-				int read = reader.read(chars);
-				while (read > 0) {
-					buffer.append(chars, 0, read);
-					read = reader.read(chars);
-				}
-			}
-			content= buffer.toString();
-		} catch (Exception e) {
-			getTracingLog().error("Exception reading response: " + e.getMessage());
-		}
-		
-		connection.release();
-		
-		return content;
+		return connection;
 	}
 
+	private static String getProjectAreaHistoryUrl(String projectAreaId, URI repositoryUri) {
+		return repositoryUri.toString() + (PROJECT_AREA_HISTORY_URI_TEMPLATE.replace("$1", projectAreaId));
+	}
 	
 	public Logger fTracingLog;
 	public final Logger getTracingLog() {
@@ -182,62 +160,139 @@ public class ProcessAreaOslcHelper {
 		fTracingLog = log;
 	}
 
-	public String fetchProjectAreaConfigurationXml(FindEnumerationIdConflictsCommand command,
-			DocumentBuilderFactory factory, String projectAreaId, URI repositoryURI, boolean isShowingHistory) {
-		String result = "";
+	/**
+	 * Find the process specification of the latest entry in the project area
+	 * history. The URL changes with every change of the process configuration,
+	 * so it marks the state of the configuration.
+	 * 
+	 * The history is parsed while it is read and the request ends at the first
+	 * process specification. The history is only read completely if it is
+	 * shown.
+	 * 
+	 * @param command
+	 * @param projectAreaId
+	 * @param repositoryURI
+	 * @param isShowingHistory
+	 * @param log
+	 *            - receives the output for the project area
+	 * @return the process specification URL or null if there is none
+	 */
+	public String fetchProcessSpecificationUrl(FindEnumerationIdConflictsCommand command, String projectAreaId,
+			URI repositoryURI, boolean isShowingHistory, BufferedLog log) {
 		try {
-			String history = this.fetchProjectAreaHistory(command, projectAreaId, repositoryURI);
-			if (isShowingHistory ) {
+			if (isShowingHistory) {
+				String history = this.fetchProjectAreaHistory(command, projectAreaId, repositoryURI, log);
 				try {
-					getTracingLog().info("Project Area history for: " + projectAreaId  + StringEscapeUtils.unescapeXml(history));
+					log.info("Project Area history for: " + projectAreaId  + StringEscapeUtils.unescapeXml(history));
 				} catch (Exception e) {
-					getTracingLog().warn("Could not parse history for " + projectAreaId  + "\n" + history);
+					log.warn("Could not parse history for " + projectAreaId  + "\n" + history);
 				}
+				return findProcessSpecificationUrl(XmlParserUtil.createXMLStreamReader(new StringReader(history), true));
 			}
-			Document hDocument = null;
+			String projectAreaHistoryUrl = getProjectAreaHistoryUrl(projectAreaId, repositoryURI);
+			log.debug("Loading project history: " + projectAreaHistoryUrl);
+			IRawRestClientConnection connection = openConnection(command, projectAreaHistoryUrl);
 			try {
-				DocumentBuilder hDocumentBuilder = factory.newDocumentBuilder();
-				byte[] bytes = history.getBytes(CharsetEncoding.UTF8.toCharset().name());
-				hDocument = hDocumentBuilder.parse(new ByteArrayInputStream(bytes));
-			} catch (ParserConfigurationException ex) {
-				getTracingLog().error("Parse exception: " + ex.getMessage());
-				throw new IOException(ex.getMessage());
-			} catch (SAXException ex) {
-				getTracingLog().error("SAX exception: " + ex.getMessage());
-				throw new IOException(ex.getMessage());
+				InputStream responseStream = connection.doGet().getResponseStream();
+				if (responseStream == null) {
+					return null;
+				}
+				return findProcessSpecificationUrl(XmlParserUtil.createXMLStreamReader(responseStream, true));
+			} finally {
+				connection.release();
 			}
+		} catch (Exception e) {
+			log.error("Exception " + e.getMessage());
+		}
+		return null;
+	}
 
-			Node hDocumentNode = hDocument.getFirstChild();
-			NodeList historyNodes = hDocumentNode.getChildNodes();
-
-			for (int y = 0; y < historyNodes.getLength(); y++) {
-				Node historyNode = historyNodes.item(y);
-				if (historyNode == null || !historyNode.hasChildNodes())
-					continue;
-
-				NodeList historyChangeNodeList = historyNode.getChildNodes();
-				for (int z = 0; z < historyChangeNodeList.getLength(); z++) {
-					Node historyChangeNode = historyChangeNodeList.item(z);
-					if (!historyChangeNode.hasAttributes())
-						continue;
-
-					Node hChangeAttribute = historyChangeNode.getAttributes().getNamedItem("jp:url");
-					if (hChangeAttribute == null)
+	/**
+	 * Read the history up to the first entry with a process specification.
+	 * 
+	 * @param reader
+	 * @return the process specification URL or null if there is none
+	 * @throws XMLStreamException
+	 */
+	private static String findProcessSpecificationUrl(XMLStreamReader reader) throws XMLStreamException {
+		try {
+			int depth = 0;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamReader.END_ELEMENT) {
+					depth--;
+				} else if (event == XMLStreamReader.START_ELEMENT) {
+					depth++;
+					if (depth != HISTORY_ENTRY_DEPTH) {
 						continue;
-					String url2 = hChangeAttribute.getNodeValue();
-					if (url2.indexOf("process-specification") != -1) {
-//						getTracingLog().trace("Loading content: " + url2);
-						// Get all project area names
-						result = this.fetchProcessAreaXML(command, url2);
-						return result;
+					}
+					for (int i = 0; i < reader.getAttributeCount(); i++) {
+						if (HISTORY_URL_PREFIX.equals(reader.getAttributePrefix(i))
+								&& HISTORY_URL_ATTRIBUTE.equals(reader.getAttributeLocalName(i))
+								&& reader.getAttributeValue(i).indexOf(PROCESS_SPECIFICATION) != -1) {
+							return reader.getAttributeValue(i);
+						}
 					}
 				}
 			}
+			return null;
+		} finally {
+			reader.close();
+		}
+	}
 
+	/**
+	 * Search the process specification while it is read. Only the text around
+	 * the occurrences is kept.
+	 * 
+	 * @param command
+	 * @param specificationUrl
+	 * @param matcher
+	 * @param contextBefore
+	 * @param contextAfter
+	 * @param log
+	 *            - receives the output for the project area
+	 * @return the occurrences with their context or null if the process
+	 *         specification can not be read
+	 */
+	public List<MultiPatternMatcher.Match> scanProcessSpecification(FindEnumerationIdConflictsCommand command,
+			String specificationUrl, MultiPatternMatcher matcher, int contextBefore, int contextAfter, BufferedLog log) {
+		log.trace("Scanning process area configuration xml: " + specificationUrl);
+		try {
+			IRawRestClientConnection connection = openConnection(command, specificationUrl);
+			try {
+				InputStream responseStream = connection.doGet().getResponseStream();
+				if (responseStream == null) {
+					return null;
+				}
+				Reader reader = new InputStreamReader(responseStream, HttpConstants.ENCODING_UTF8);
+				return matcher.findAll(reader, contextBefore, contextAfter);
+			} finally {
+				connection.release();
+			}
+		} catch (Exception e) {
+			log.error("Exception reading response: " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * @param command
+	 * @param specificationUrl
+	 * @param log
+	 *            - receives the output for the project area
+	 * @return the process configuration xml or an empty string if it can not
+	 *         be read
+	 */
+	public String fetchProcessSpecification(FindEnumerationIdConflictsCommand command, String specificationUrl,
+			BufferedLog log) {
+		try {
+			String result = this.fetchProcessAreaXML(command, specificationUrl, log);
+			return result == null ? "" : result;
 		} catch (Exception e) {
-			getTracingLog().error("Exception " + e.getMessage());
+			log.error("Exception " + e.getMessage());
 		}
-		return result;
+		return "";
 	}
 
 	// Non-gc path
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The result of the last scan of the process configuration of each project
+ * area. The process specification URL of the latest project area history entry
+ * marks the state of the process configuration that was scanned. If the URL is
+ * unchanged in a later run, the process configuration has not changed and the
+ * stored result can be reported without downloading and scanning it again.
+ *
+ * The state is stored to and loaded from a properties file. The state is only
+ * valid for the same patterns, a file written for other patterns is ignored.
+ * Only the project areas seen in the current run are stored.
+ *
+ * The state is thread safe.
+ *
+ */
+public class ProcessAreaScanState {
+
+	private static final String KEY_SCAN = "scan";
+	private static final String SUFFIX_SPECIFICATION = ".specification";
+	private static final String SUFFIX_MATCHES = ".matches";
+	private static final String MATCH_SEPARATOR = ",";
+
+	private final String fScanKey;
+	// The state loaded from the file
+	private final Map<String, Entry> fPrevious = new TreeMap<String, Entry>();
+	// The state of the project areas seen in this run
+	private final Map<String, Entry> fCurrent = new TreeMap<String, Entry>();
+	private long fUnchanged = 0;
+	private long fChanged = 0;
+
+	private static class Entry {
+		final String specificationUrl;
+		final List<Integer> matches;
+
+		Entry(String specificationUrl, List<Integer> matches) {
+			this.specificationUrl = specificationUrl;
+			this.matches = Collections.unmodifiableList(new ArrayList<Integer>(matches));
+		}
+	}
+
+	/**
+	 * @param scanKey
+	 *            - identifies the patterns that are searched, for example the
+	 *            patterns separated by a new line
+	 */
+	public ProcessAreaScanState(String scanKey) {
+		fScanKey = scanKey;
+	}
+
+	/**
+	 * Get the result of the last scan if the process configuration has not
+	 * changed since.
+	 *
+	 * @param projectAreaId
+	 * @param specificationUrl
+	 *            - the process specification URL of the latest history entry
+	 * @return the indexes of the patterns found, one for each occurrence, or
+	 *         null if the project area has to be scanned
+	 */
+	public synchronized List<Integer> getUnchangedMatches(String projectAreaId, String specificationUrl) {
+		Entry entry = fPrevious.get(projectAreaId);
+		if (entry == null || specificationUrl == null || !specificationUrl.equals(entry.specificationUrl)) {
+			fChanged++;
+			return null;
+		}
+		fUnchanged++;
+		fCurrent.put(projectAreaId, entry);
+		return entry.matches;
+	}
+
+	/**
+	 * Remember the result of the scan of a project area.
+	 *
+	 * @param projectAreaId
+	 * @param specificationUrl
+	 *            - the process specification URL that was scanned
+	 * @param matches
+	 *            - the indexes of the patterns found, one for each occurrence
+	 */
+	public synchronized void put(String projectAreaId, String specificationUrl, List<Integer> matches) {
+		fCurrent.put(projectAreaId, new Entry(specificationUrl, matches));
+	}
+
+	/**
+	 * Load the state of the last run. A missing file or a file written for
+	 * other patterns is not an error, all project areas are scanned.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void load(File file) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		if (!fScanKey.equals(properties.getProperty(KEY_SCAN))) {
+			return;
+		}
+		for (String key : properties.stringPropertyNames()) {
+			if (!key.endsWith(SUFFIX_SPECIFICATION)) {
+				continue;
+			}
+			String projectAreaId = key.substring(0, key.length() - SUFFIX_SPECIFICATION.length());
+			try {
+				List<Integer> matches = new ArrayList<Integer>();
+				String matchList = properties.getProperty(projectAreaId + SUFFIX_MATCHES, "");
+				for (String match : matchList.split(MATCH_SEPARATOR)) {
+					if (match.length() > 0) {
+						matches.add(Integer.valueOf(match));
+					}
+				}
+				fPrevious.put(projectAreaId, new Entry(properties.getProperty(key), matches));
+			} catch (NumberFormatException e) {
+				// Ignore damaged entries
+			}
+		}
+	}
+
+	/**
+	 * Store the state of the project areas seen in this run.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void store(File file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(KEY_SCAN, fScanKey);
+		for (Map.Entry<String, Entry> entry : fCurrent.entrySet()) {
+			StringBuilder matches = new StringBuilder();
+			for (Integer match : entry.getValue().matches) {
+				if (matches.length() > 0) {
+					matches.append(MATCH_SEPARATOR);
+				}
+				matches.append(match);
+			}
+			properties.setProperty(entry.getKey() + SUFFIX_SPECIFICATION, entry.getValue().specificationUrl);
+			properties.setProperty(entry.getKey() + SUFFIX_MATCHES, matches.toString());
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, "Scanned process specification and matches by project area");
+		} finally {
+			out.close();
+		}
+	}
+
+	public synchronized int size() {
+		return fPrevious.size();
+	}
+
+	/**
+	 * @return the number of unchanged and changed project areas
+	 */
+	public synchronized String getStatistics() {
+		return "Scan state: " + fUnchanged + " unchanged project areas, " + fChanged + " changed or new project areas.";
+	}
+}
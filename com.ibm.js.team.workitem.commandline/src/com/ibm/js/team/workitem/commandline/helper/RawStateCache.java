@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache for raw item state content keyed by state ID. A
+ * state never changes, so the content can be kept for the whole run. The cache
+ * is bounded by the number of entries and by the number of bytes.
+ *
+ * The cache counts hits, misses and evictions for the report at the end of the
+ * run.
+ *
+ */
+public class RawStateCache {
+
+	private final int fMaxEntries;
+	private final long fMaxBytes;
+	// Access order, the eldest entry is the least recently used
+	private final LinkedHashMap<String, byte[]> fEntries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+	private long fBytes = 0;
+	private long fHits = 0;
+	private long fMisses = 0;
+	private long fEvictions = 0;
+
+	/**
+	 * @param maxEntries
+	 *            - the maximum number of states kept
+	 * @param maxBytes
+	 *            - the maximum size of the content kept
+	 */
+	public RawStateCache(int maxEntries, long maxBytes) {
+		fMaxEntries = maxEntries;
+		fMaxBytes = maxBytes;
+	}
+
+	/**
+	 * Counts a hit if the state was cached before the request, otherwise a
+	 * miss.
+	 *
+	 * @param stateId
+	 * @return the content or null if the state is not cached
+	 */
+	public synchronized byte[] get(String stateId) {
+		byte[] content = fEntries.get(stateId);
+		if (content == null) {
+			fMisses++;
+		} else {
+			fHits++;
+		}
+		return content;
+	}
+
+	/**
+	 * Add the content of a state. Content larger than the cache is not kept.
+	 *
+	 * @param stateId
+	 * @param content
+	 */
+	public synchronized void put(String stateId, byte[] content) {
+		if (content.length > fMaxBytes || fMaxEntries < 1) {
+			return;
+		}
+		byte[] previous = fEntries.put(stateId, content);
+		if (previous != null) {
+			fBytes -= previous.length;
+		}
+		fBytes += content.length;
+		Iterator<Map.Entry<String, byte[]>> eldest = fEntries.entrySet().iterator();
+		while (fEntries.size() > fMaxEntries || fBytes > fMaxBytes) {
+			fBytes -= eldest.next().getValue().length;
+			eldest.remove();
+			fEvictions++;
+		}
+	}
+
+	public synchronized long getHits() {
+		return fHits;
+	}
+
+	public synchronized long getMisses() {
+		return fMisses;
+	}
+
+	/**
+	 * @return the hit and miss counters and the size of the cache
+	 */
+	public synchronized String getStatistics() {
+		return "Raw state cache: " + fHits + " hits, " + fMisses + " misses, " + fEvictions + " evictions, "
+				+ fEntries.size() + " states, " + fBytes + " bytes.";
+	}
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+
+import com.ibm.js.team.workitem.commandline.commands.ValidateWorkItemStatesCommand;
+import com.ibm.team.repository.common.transport.HttpUtil;
+import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient;
+import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient.IRawRestClientConnection;
+
+/**
+ * Fetches raw item states from the repodebug service. A bounded number of
+ * requests runs at the same time. The connections are taken from the rest
+ * client of the command and released after each request, so they are reused.
+ *
+ * A request for a state that is already in flight or prefetched does not start
+ * another request, the caller waits for the running one. Prefetched content is
+ * handed to the caller without going through the cache.
+ *
+ * If a cache is provided, the shared states, such as attribute states, are
+ * kept in the cache and not requested again. Work item states are only used
+ * once and are not cached.
+ *
+ */
+public class RawStateFetcher {
+
+	private static final String GET_RAW_ITEM_STATE_RESOURCE_URL_PREFIX = "/repodebug/repository/rawItemState/";
+	private static final String GET_RAW_ITEM_STATE_RESOURCE_URL_SUFFIX = "/raw";
+
+	private final ValidateWorkItemStatesCommand fCommand;
+	private final int fMaxConnections;
+	private final ExecutorService fExecutor;
+	private final RawStateCache fCache;
+	private final ConcurrentHashMap<String, Future<byte[]>> fInFlight = new ConcurrentHashMap<String, Future<byte[]>>();
+
+	/**
+	 * @param command
+	 *            - provides the repository URL and the rest client
+	 * @param maxConnections
+	 *            - the maximum number of requests running at the same time
+	 * @param cache
+	 *            - the cache for the fetched content or null
+	 */
+	public RawStateFetcher(ValidateWorkItemStatesCommand command, int maxConnections, RawStateCache cache) {
+		fCommand = command;
+		fCache = cache;
+		fMaxConnections = Math.max(1, maxConnections);
+		fExecutor = Executors.newFixedThreadPool(fMaxConnections, new ThreadFactory() {
+			private final AtomicInteger fCount = new AtomicInteger(1);
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "rawStateFetcher-" + fCount.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public int getMaxConnections() {
+		return fMaxConnections;
+	}
+
+	/**
+	 * Start fetching a work item state in the background, if it is not already
+	 * in flight. The content is kept until it is fetched with fetch().
+	 *
+	 * @param stateId
+	 */
+	public void prefetch(String stateId) {
+		getOrStart(stateId);
+	}
+
+	/**
+	 * Fetch the raw content of a state. Waits for a request that is already in
+	 * flight for the same state.
+	 *
+	 * @param stateId
+	 * @param isShared
+	 *            - true for states that are used by several work item states,
+	 *            these are cached
+	 * @return the raw content
+	 * @throws Exception
+	 *             if the request failed
+	 */
+	public byte[] fetch(String stateId, boolean isShared) throws Exception {
+		boolean isCached = isShared && fCache != null;
+		if (isCached) {
+			byte[] content = fCache.get(stateId);
+			if (content != null) {
+				return content;
+			}
+		}
+		Future<byte[]> future = getOrStart(stateId);
+		try {
+			byte[] content = future.get();
+			if (isCached) {
+				fCache.put(stateId, content);
+			}
+			return content;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		} finally {
+			fInFlight.remove(stateId, future);
+		}
+	}
+
+	/**
+	 * Cancel and forget all prefetched states that were not fetched.
+	 */
+	public void clear() {
+		for (Future<byte[]> future : fInFlight.values()) {
+			future.cancel(true);
+		}
+		fInFlight.clear();
+	}
+
+	/**
+	 * Release the threads.
+	 */
+	public void dispose() {
+		clear();
+		fExecutor.shutdownNow();
+	}
+
+	private Future<byte[]> getOrStart(final String stateId) {
+		Future<byte[]> future = fInFlight.get(stateId);
+		if (future != null) {
+			return future;
+		}
+		FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws Exception {
+				return download(stateId);
+			}
+		});
+		// Only one request per state, the loser of the race uses the winner
+		future = fInFlight.putIfAbsent(stateId, task);
+		if (future != null) {
+			return future;
+		}
+		fExecutor.execute(task);
+		return task;
+	}
+
+	private byte[] download(String stateId) throws Exception {
+		// https://theserver:9443/ccm/repodebug/repository/rawItemState/_n1tT8KegEeqU3qZ0xzTZsg/raw
+		String resourceUrl = fCommand.repositoryUrl + GET_RAW_ITEM_STATE_RESOURCE_URL_PREFIX + stateId
+				+ GET_RAW_ITEM_STATE_RESOURCE_URL_SUFFIX;
+		URI resourceUri = new URI(resourceUrl);
+		ITeamRawRestServiceClient restClient = fCommand.getRestClient(resourceUri);
+		IRawRestClientConnection connection = restClient.getConnection(resourceUri);
+		connection.addRequestHeader(HttpUtil.ACCEPT, "application/xml");
+		try {
+			fCommand.logger.trace("... Loading raw item state: " + resourceUrl);
+			IRawRestClientConnection.Response response = connection.doGet();
+			InputStream in = response.getResponseStream();
+			try {
+				return IOUtils.toByteArray(in);
+			} finally {
+				in.close();
+			}
+		} finally {
+			connection.release();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.ibm.js.team.workitem.commandline.utils.XmlParserUtil;
+
+/**
+ * The fields of a raw item state that are needed to validate it and to follow
+ * its references. The fields are read in a single pass with a streaming
+ * parser, which also checks that the XML is well formed. No DOM is built.
+ *
+ * As with getElementsByTagName on a DOM that is not namespace aware, elements
+ * are matched by their qualified name and the first element with a name is
+ * used, except for the custom attributes where all are collected.
+ *
+ */
+public class RawStateSummary {
+
+	private String fRootElementName;
+	private String fId;
+	private String fItemId;
+	private String fStateId;
+	private String fPredecessor;
+	private String fMergePredecessor;
+	private String fTargetItemId;
+	private String fFoundInItemId;
+	private String fProjectAreaItemId;
+	private List<String> fCustomAttributeStateIds = new ArrayList<String>();
+
+	// Tracks which of the first elements were seen
+	private boolean fSeenId;
+	private boolean fSeenStateId;
+	private boolean fSeenPredecessor;
+	private boolean fSeenMergePredecessor;
+	private boolean fSeenWorkItem;
+	private boolean fSeenTarget;
+	private boolean fSeenFoundIn;
+	private boolean fSeenProjectArea;
+
+	private RawStateSummary() {
+	}
+
+	/**
+	 * Read the summary from the raw content.
+	 *
+	 * @param content
+	 * @return the summary
+	 * @throws XMLStreamException
+	 *             if the content is not well formed
+	 */
+	public static RawStateSummary read(String content) throws XMLStreamException {
+		return read(new StringReader(content));
+	}
+
+	/**
+	 * Read the summary from the raw content.
+	 *
+	 * @param reader
+	 * @return the summary
+	 * @throws XMLStreamException
+	 *             if the content is not well formed
+	 */
+	public static RawStateSummary read(Reader reader) throws XMLStreamException {
+		RawStateSummary summary = new RawStateSummary();
+		XMLStreamReader xml = XmlParserUtil.createXMLStreamReader(reader, false);
+		try {
+			summary.readElements(xml);
+		} finally {
+			xml.close();
+		}
+		return summary;
+	}
+
+	private void readElements(XMLStreamReader xml) throws XMLStreamException {
+		// The element whose first text child is captured, if any
+		String capturing = null;
+		StringBuilder text = new StringBuilder();
+		while (xml.hasNext()) {
+			int event = xml.next();
+			switch (event) {
+			case XMLStreamConstants.START_ELEMENT:
+				if (capturing != null) {
+					setText(capturing, text);
+					capturing = null;
+				}
+				String name = getQualifiedName(xml);
+				if (fRootElementName == null) {
+					fRootElementName = name;
+				}
+				capturing = readStartElement(xml, name);
+				text.setLength(0);
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if (capturing != null) {
+					text.append(xml.getText());
+				}
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+			case XMLStreamConstants.COMMENT:
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				if (capturing != null) {
+					setText(capturing, text);
+					capturing = null;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return the name of the element whose text has to be captured or null
+	 */
+	private String readStartElement(XMLStreamReader xml, String name) {
+		if ("id".equals(name) && !fSeenId) {
+			fSeenId = true;
+			return name;
+		}
+		if ("stateId".equals(name) && !fSeenStateId) {
+			fSeenStateId = true;
+			return name;
+		}
+		if ("predecessor".equals(name) && !fSeenPredecessor) {
+			fSeenPredecessor = true;
+			return name;
+		}
+		if ("mergePredecessor".equals(name) && !fSeenMergePredecessor) {
+			fSeenMergePredecessor = true;
+			return name;
+		}
+		if ("workitem:WorkItem".equals(name) && !fSeenWorkItem) {
+			fSeenWorkItem = true;
+			fItemId = xml.getAttributeValue(null, "itemId");
+		} else if ("target".equals(name) && !fSeenTarget) {
+			fSeenTarget = true;
+			fTargetItemId = xml.getAttributeValue(null, "itemId");
+		} else if ("foundIn".equals(name) && !fSeenFoundIn) {
+			fSeenFoundIn = true;
+			fFoundInItemId = xml.getAttributeValue(null, "itemId");
+		} else if ("projectArea".equals(name) && !fSeenProjectArea) {
+			fSeenProjectArea = true;
+			fProjectAreaItemId = xml.getAttributeValue(null, "itemId");
+		} else if ("customAttribute".equals(name)) {
+			String stateId = xml.getAttributeValue(null, "stateId");
+			if (stateId != null) {
+				fCustomAttributeStateIds.add(stateId);
+			}
+		}
+		return null;
+	}
+
+	private void setText(String name, StringBuilder text) {
+		// Like the value of the first child node, an empty element has no text
+		String value = text.length() > 0 ? text.toString() : null;
+		if ("id".equals(name)) {
+			fId = value;
+		} else if ("stateId".equals(name)) {
+			fStateId = value;
+		} else if ("predecessor".equals(name)) {
+			fPredecessor = value;
+		} else if ("mergePredecessor".equals(name)) {
+			fMergePredecessor = value;
+		}
+	}
+
+	private static String getQualifiedName(XMLStreamReader xml) {
+		String prefix = xml.getPrefix();
+		if (prefix == null || prefix.length() == 0) {
+			return xml.getLocalName();
+		}
+		return prefix + ":" + xml.getLocalName();
+	}
+
+	/**
+	 * @return the name of the root element, the type of the item
+	 */
+	public String getRootElementName() {
+		return fRootElementName;
+	}
+
+	public String getId() {
+		return fId;
+	}
+
+	public String getItemId() {
+		return fItemId;
+	}
+
+	public String getStateId() {
+		return fStateId;
+	}
+
+	public String getPredecessor() {
+		return fPredecessor;
+	}
+
+	public String getMergePredecessor() {
+		return fMergePredecessor;
+	}
+
+	public String getTargetItemId() {
+		return fTargetItemId;
+	}
+
+	public String getFoundInItemId() {
+		return fFoundInItemId;
+	}
+
+	public String getProjectAreaItemId() {
+		return fProjectAreaItemId;
+	}
+
+	public List<String> getCustomAttributeStateIds() {
+		return fCustomAttributeStateIds;
+	}
+}
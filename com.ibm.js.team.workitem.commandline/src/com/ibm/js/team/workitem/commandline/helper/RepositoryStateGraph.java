@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The states of an item and the predecessor and merge predecessor edges
+ * between them. The states are indexed by their state ID and kept in the order
+ * they were added.
+ *
+ * The roots are the states without a predecessor, the heads are the states
+ * that are not the predecessor or merge predecessor of any other state. A
+ * healthy history has one root and one head, the current state.
+ *
+ */
+public class RepositoryStateGraph {
+
+	private Map<String, RepositoryStateModel> fStates = new LinkedHashMap<String, RepositoryStateModel>();
+	// State IDs that are referenced as predecessor or merge predecessor
+	private Set<String> fReferencedStateIds = new HashSet<String>();
+
+	/**
+	 * Add a state or get the state that was already added with the same ID.
+	 *
+	 * @param stateModel
+	 * @return the state model in the graph
+	 */
+	public RepositoryStateModel add(RepositoryStateModel stateModel) {
+		RepositoryStateModel existing = fStates.get(stateModel.getStateId());
+		if (existing != null) {
+			return existing;
+		}
+		fStates.put(stateModel.getStateId(), stateModel);
+		return stateModel;
+	}
+
+	/**
+	 * Set the edges of a state in the graph.
+	 *
+	 * @param stateModel
+	 * @param predecessorStateId
+	 *            - the predecessor state ID or null
+	 * @param mergePredecessorStateId
+	 *            - the merge predecessor state ID or null
+	 */
+	public void setPredecessors(RepositoryStateModel stateModel, String predecessorStateId,
+			String mergePredecessorStateId) {
+		// The history is walked along the predecessor, or the merge predecessor
+		// if there is no predecessor
+		stateModel.setPredecessorStateId(predecessorStateId != null ? predecessorStateId : mergePredecessorStateId);
+		stateModel.setMergePredecessorStateId(mergePredecessorStateId);
+		if (predecessorStateId != null) {
+			fReferencedStateIds.add(predecessorStateId);
+		}
+		if (mergePredecessorStateId != null) {
+			fReferencedStateIds.add(mergePredecessorStateId);
+		}
+	}
+
+	/**
+	 * @param stateId
+	 * @return the state with the ID or null if it is not in the graph
+	 */
+	public RepositoryStateModel getState(String stateId) {
+		if (stateId == null) {
+			return null;
+		}
+		return fStates.get(stateId);
+	}
+
+	/**
+	 * @param stateModel
+	 * @return the state the history continues with or null if there is none
+	 *         or it is not in the graph
+	 */
+	public RepositoryStateModel getPredecessor(RepositoryStateModel stateModel) {
+		return getState(stateModel.getPredecessorStateId());
+	}
+
+	/**
+	 * @return all states in the order they were added
+	 */
+	public Collection<RepositoryStateModel> getStates() {
+		return fStates.values();
+	}
+
+	public int size() {
+		return fStates.size();
+	}
+
+	/**
+	 * @return the states without predecessor
+	 */
+	public List<RepositoryStateModel> getRoots() {
+		List<RepositoryStateModel> roots = new ArrayList<RepositoryStateModel>();
+		for (RepositoryStateModel stateModel : fStates.values()) {
+			if (stateModel.getPredecessorStateId() == null) {
+				roots.add(stateModel);
+			}
+		}
+		return roots;
+	}
+
+	/**
+	 * @return the states that no other state refers to as predecessor
+	 */
+	public List<RepositoryStateModel> getHeads() {
+		List<RepositoryStateModel> heads = new ArrayList<RepositoryStateModel>();
+		for (RepositoryStateModel stateModel : fStates.values()) {
+			if (!fReferencedStateIds.contains(stateModel.getStateId())) {
+				heads.add(stateModel);
+			}
+		}
+		return heads;
+	}
+
+	/**
+	 * Mark the heads as current states.
+	 *
+	 * @return the heads
+	 */
+	public List<RepositoryStateModel> computeCurrentStates() {
+		for (RepositoryStateModel stateModel : fStates.values()) {
+			stateModel.setIsCurrentState(!fReferencedStateIds.contains(stateModel.getStateId()));
+		}
+		return getHeads();
+	}
+
+	/**
+	 * @return the first current state or null if there is none
+	 */
+	public RepositoryStateModel getCurrentState() {
+		for (RepositoryStateModel stateModel : fStates.values()) {
+			if (stateModel.getIsCurrentState()) {
+				return stateModel;
+			}
+		}
+		return null;
+	}
+}
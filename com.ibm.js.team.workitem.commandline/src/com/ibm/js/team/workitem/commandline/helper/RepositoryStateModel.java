@@ -16,6 +16,7 @@ public class RepositoryStateModel {
 	private boolean fIsCurrentState;
 	private String fStateId;
 	private String fPredecessorStateId;
+	private String fMergePredecessorStateId;
 	private String fItemContent;
 	private IAuditableHandle fStateHandle;
 	private IWorkItem fWorkItem;
@@ -51,6 +52,10 @@ public class RepositoryStateModel {
 		return fPredecessorStateId;
 	}
 
+	public String getMergePredecessorStateId() {
+		return fMergePredecessorStateId;
+	}
+
 	public boolean getIsCurrentState() {
 		return fIsCurrentState;
 	}
@@ -67,6 +72,10 @@ public class RepositoryStateModel {
 		fPredecessorStateId = id;
 	}
 
+	public void setMergePredecessorStateId(String id) {
+		fMergePredecessorStateId = id;
+	}
+
 	public void setIsCurrentState(boolean isCurrent) {
 		fIsCurrentState = isCurrent;
 	}
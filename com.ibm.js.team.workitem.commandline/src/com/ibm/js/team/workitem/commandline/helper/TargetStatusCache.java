@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Cache for the result of the verification of a link target in a global
+ * configuration, keyed by target URL and configuration URI. An entry expires
+ * after the time to live. The cache is bounded by the number of entries, the
+ * least recently used entry is dropped first.
+ *
+ * The cache can be stored to and loaded from a properties file, so that a
+ * later run skips the targets verified within the time to live. Only targets
+ * that were verified to exist are stored, broken targets are checked again in
+ * the next run.
+ *
+ * The cache counts hits and misses. The cache is thread safe.
+ *
+ */
+public class TargetStatusCache {
+
+	// Separates target and configuration in the key, URLs contain no space
+	private static final String KEY_SEPARATOR = " ";
+
+	private final int fMaxEntries;
+	private final long fTimeToLive;
+	// Access order, the eldest entry is the least recently used
+	private final LinkedHashMap<String, Entry> fEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long fHits = 0;
+	private long fMisses = 0;
+
+	private static class Entry {
+		final boolean status;
+		final long verified;
+
+		Entry(boolean status, long verified) {
+			this.status = status;
+			this.verified = verified;
+		}
+	}
+
+	/**
+	 * @param maxEntries
+	 *            - the maximum number of targets kept
+	 * @param timeToLive
+	 *            - the time in milliseconds a result is valid
+	 */
+	public TargetStatusCache(int maxEntries, long timeToLive) {
+		fMaxEntries = maxEntries;
+		fTimeToLive = timeToLive;
+	}
+
+	/**
+	 * @param targetURL
+	 * @param gcUri
+	 * @return the status or null if the target is not cached or the result
+	 *         expired
+	 */
+	public synchronized Boolean get(String targetURL, String gcUri) {
+		String key = createKey(targetURL, gcUri);
+		Entry entry = fEntries.get(key);
+		if (entry != null && isExpired(entry, System.currentTimeMillis())) {
+			fEntries.remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			fMisses++;
+			return null;
+		}
+		fHits++;
+		return entry.status;
+	}
+
+	/**
+	 * @param targetURL
+	 * @param gcUri
+	 * @param status
+	 *            - true if the target exists
+	 */
+	public synchronized void put(String targetURL, String gcUri, boolean status) {
+		put(createKey(targetURL, gcUri), new Entry(status, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Load the verified targets from a file. Expired entries are ignored. A
+	 * missing file is not an error.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void load(File file) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		long now = System.currentTimeMillis();
+		for (String key : properties.stringPropertyNames()) {
+			try {
+				Entry entry = new Entry(true, Long.parseLong(properties.getProperty(key)));
+				if (!isExpired(entry, now)) {
+					put(key, entry);
+				}
+			} catch (NumberFormatException e) {
+				// Ignore damaged entries
+			}
+		}
+	}
+
+	/**
+	 * Store the targets verified to exist to a file, with the time of the
+	 * verification.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void store(File file) throws IOException {
+		Properties properties = new Properties();
+		long now = System.currentTimeMillis();
+		for (Map.Entry<String, Entry> entry : fEntries.entrySet()) {
+			if (entry.getValue().status && !isExpired(entry.getValue(), now)) {
+				properties.setProperty(entry.getKey(), Long.toString(entry.getValue().verified));
+			}
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, "Verified link targets by target URL and global configuration");
+		} finally {
+			out.close();
+		}
+	}
+
+	public synchronized int size() {
+		return fEntries.size();
+	}
+
+	/**
+	 * @return the hit and miss counters and the size of the cache
+	 */
+	public synchronized String getStatistics() {
+		return "Target status cache: " + fHits + " hits, " + fMisses + " misses, " + fEntries.size() + " targets.";
+	}
+
+	private void put(String key, Entry entry) {
+		if (fMaxEntries < 1) {
+			return;
+		}
+		fEntries.put(key, entry);
+		Iterator<Map.Entry<String, Entry>> eldest = fEntries.entrySet().iterator();
+		while (fEntries.size() > fMaxEntries) {
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	private boolean isExpired(Entry entry, long now) {
+		return now - entry.verified > fTimeToLive;
+	}
+
+	private static String createKey(String targetURL, String gcUri) {
+		return targetURL + KEY_SEPARATOR + (gcUri == null ? "" : gcUri);
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.js.team.workitem.commandline.commands.ValidateOSLCLinksCommand;
+
+/**
+ * Verifies that the targets of GC links exist. The verifications run in the
+ * background on a bounded number of threads. At most maxPerHost verifications
+ * run against the same host at the same time, further verifications for the
+ * host wait in a queue without blocking a thread, so other hosts are not held
+ * up by a slow one.
+ *
+ * A target that is already being verified in the same configuration is not
+ * verified again, the caller gets the running verification. If a cache is
+ * provided, cached results are used and new results are added to the cache.
+ *
+ */
+public class TargetUrlVerifier {
+
+	private final ValidateOSLCLinksCommand fCommand;
+	private final int fMaxPerHost;
+	private final ExecutorService fExecutor;
+	private final TargetStatusCache fCache;
+	private final ConcurrentHashMap<String, Future<Boolean>> fInFlight = new ConcurrentHashMap<String, Future<Boolean>>();
+	// The running and waiting verifications by host
+	private final Map<String, HostQueue> fHosts = new HashMap<String, HostQueue>();
+
+	private static class HostQueue {
+		int active = 0;
+		Deque<Runnable> waiting = new ArrayDeque<Runnable>();
+	}
+
+	/**
+	 * @param command
+	 *            - performs the verification
+	 * @param threads
+	 *            - the maximum number of verifications running at the same time
+	 * @param maxPerHost
+	 *            - the maximum number of verifications running against one host
+	 * @param cache
+	 *            - the cache for the results or null
+	 */
+	public TargetUrlVerifier(ValidateOSLCLinksCommand command, int threads, int maxPerHost,
+			TargetStatusCache cache) {
+		fCommand = command;
+		fCache = cache;
+		fMaxPerHost = Math.max(1, maxPerHost);
+		fExecutor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			private final AtomicInteger fCount = new AtomicInteger(1);
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "targetUrlVerifier-" + fCount.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Start the verification of a target.
+	 *
+	 * @param targetURL
+	 * @param gcUriString
+	 * @return the result, true if the target exists in the configuration
+	 */
+	public Future<Boolean> verify(final String targetURL, final String gcUriString) {
+		if (fCache != null) {
+			Boolean status = fCache.get(targetURL, gcUriString);
+			if (status != null) {
+				return CompletableFuture.completedFuture(status);
+			}
+		}
+		final String key = targetURL + " " + gcUriString;
+		Future<Boolean> running = fInFlight.get(key);
+		if (running != null) {
+			return running;
+		}
+		final String host = getHost(targetURL);
+		final FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				boolean status = fCommand.validGCTargetURL(targetURL, gcUriString);
+				if (fCache != null) {
+					fCache.put(targetURL, gcUriString, status);
+				}
+				return status;
+			}
+		});
+		// Only one verification per target, the loser of the race uses the winner
+		running = fInFlight.putIfAbsent(key, task);
+		if (running != null) {
+			return running;
+		}
+		Runnable runnable = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} finally {
+					fInFlight.remove(key, task);
+					startNext(host);
+				}
+			}
+		};
+		synchronized (fHosts) {
+			HostQueue queue = fHosts.get(host);
+			if (queue == null) {
+				queue = new HostQueue();
+				fHosts.put(host, queue);
+			}
+			if (queue.active < fMaxPerHost) {
+				queue.active++;
+				fExecutor.execute(runnable);
+			} else {
+				queue.waiting.add(runnable);
+			}
+		}
+		return task;
+	}
+
+	/**
+	 * Release the threads. Waiting verifications are not run.
+	 */
+	public void dispose() {
+		synchronized (fHosts) {
+			fHosts.clear();
+		}
+		fInFlight.clear();
+		fExecutor.shutdownNow();
+	}
+
+	private void startNext(String host) {
+		synchronized (fHosts) {
+			HostQueue queue = fHosts.get(host);
+			if (queue == null) {
+				return;
+			}
+			Runnable next = queue.waiting.poll();
+			if (next != null) {
+				fExecutor.execute(next);
+			} else {
+				queue.active--;
+			}
+		}
+	}
+
+	private static String getHost(String targetURL) {
+		try {
+			String host = new URI(targetURL).getHost();
+			return host == null ? "" : host;
+		} catch (URISyntaxException e) {
+			return "";
+		}
+	}
+}
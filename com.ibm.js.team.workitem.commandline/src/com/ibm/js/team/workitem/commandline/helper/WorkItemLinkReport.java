@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import org.apache.logging.log4j.Logger;
+
+import com.ibm.js.team.workitem.commandline.utils.BufferedLog;
+
+/**
+ * The output of the link validation of one work item. The messages go to the
+ * log or to the console.
+ *
+ * A buffered report keeps the messages until it is flushed, so work items that
+ * are validated at the same time on different threads do not mix their
+ * output. The reports are flushed in the order of the work items.
+ *
+ */
+public class WorkItemLinkReport extends BufferedLog {
+
+	private final int fWorkItemId;
+
+	/**
+	 * @param logger
+	 *            - the log to write to
+	 * @param workItemId
+	 *            - the work item of the report
+	 * @param buffered
+	 *            - true to keep the messages until flush() is called
+	 */
+	public WorkItemLinkReport(Logger logger, int workItemId, boolean buffered) {
+		super(logger, buffered);
+		fWorkItemId = workItemId;
+	}
+
+	public int getWorkItemId() {
+		return fWorkItemId;
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.helper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.ibm.team.links.common.IItemReference;
+import com.ibm.team.links.common.ILink;
+import com.ibm.team.links.common.IReference;
+import com.ibm.team.repository.client.IItemManager;
+import com.ibm.team.repository.common.IFetchResult;
+import com.ibm.team.repository.common.IItemHandle;
+import com.ibm.team.repository.common.TeamRepositoryException;
+import com.ibm.team.workitem.common.model.IWorkItem;
+import com.ibm.team.workitem.common.model.IWorkItemHandle;
+
+/**
+ * The links of a work item, resolved once. The snapshot knows the work items
+ * at both ends of the links and can check with one request which of them no
+ * longer exist or can not be read by the user.
+ *
+ * The check only fetches the ID of the work items. Resolve the readable work
+ * items with a larger profile if their details are needed.
+ *
+ */
+public class WorkItemLinkSnapshot {
+
+	// Only the ID is fetched to check that a work item exists
+	private static final Collection<String> EXISTENCE_PROPERTIES = Collections.singletonList(IWorkItem.ID_PROPERTY);
+
+	private final int fWorkItemId;
+	private final List<IReference> fReferences;
+	// The linked work items by item ID, in the order of the links
+	private final Map<String, IWorkItemHandle> fLinkedWorkItems = new LinkedHashMap<String, IWorkItemHandle>();
+
+	/**
+	 * @param workItemId
+	 * @param references
+	 *            - the references of the work item
+	 */
+	public WorkItemLinkSnapshot(int workItemId, List<IReference> references) {
+		fWorkItemId = workItemId;
+		fReferences = Collections.unmodifiableList(new ArrayList<IReference>(references));
+		for (IReference reference : fReferences) {
+			if (!reference.isItemReference()) {
+				continue;
+			}
+			ILink link = reference.getLink();
+			addLinkedWorkItem(link.getSourceRef());
+			addLinkedWorkItem(link.getTargetRef());
+		}
+	}
+
+	public int getWorkItemId() {
+		return fWorkItemId;
+	}
+
+	/**
+	 * @return the references of the work item
+	 */
+	public List<IReference> getReferences() {
+		return fReferences;
+	}
+
+	/**
+	 * @return the work items at the source or target of an item link, each
+	 *         work item once
+	 */
+	public List<IWorkItemHandle> getLinkedWorkItems() {
+		return new ArrayList<IWorkItemHandle>(fLinkedWorkItems.values());
+	}
+
+	/**
+	 * The result of the check of the linked work items.
+	 */
+	public static class LinkedWorkItemStatus {
+		private final List<IWorkItemHandle> fReadable = new ArrayList<IWorkItemHandle>();
+		private final List<IWorkItemHandle> fMissing = new ArrayList<IWorkItemHandle>();
+		private final List<IWorkItemHandle> fPermissionDenied = new ArrayList<IWorkItemHandle>();
+
+		/**
+		 * @return the linked work items that exist and can be read
+		 */
+		public List<IWorkItemHandle> getReadable() {
+			return fReadable;
+		}
+
+		/**
+		 * @return the linked work items that were not found
+		 */
+		public List<IWorkItemHandle> getMissing() {
+			return fMissing;
+		}
+
+		/**
+		 * @return the linked work items the user is not allowed to read
+		 */
+		public List<IWorkItemHandle> getPermissionDenied() {
+			return fPermissionDenied;
+		}
+	}
+
+	/**
+	 * Check with one request which linked work items exist and can be read.
+	 * Only the ID of the work items is fetched.
+	 *
+	 * @param itemManager
+	 * @param monitor
+	 * @return the readable, missing and not accessible linked work items
+	 * @throws TeamRepositoryException
+	 */
+	public LinkedWorkItemStatus checkLinkedWorkItems(IItemManager itemManager, IProgressMonitor monitor)
+			throws TeamRepositoryException {
+		LinkedWorkItemStatus status = new LinkedWorkItemStatus();
+		if (fLinkedWorkItems.isEmpty()) {
+			return status;
+		}
+		IFetchResult fetchResult = itemManager.fetchPartialItemsPermissionAware(getLinkedWorkItems(),
+				IItemManager.DEFAULT, EXISTENCE_PROPERTIES, monitor);
+		addWorkItems(fetchResult.getRetrievedItems(), status.fReadable);
+		if (fetchResult.hasNotFoundItems()) {
+			addWorkItems(fetchResult.getNotFoundItems(), status.fMissing);
+		}
+		if (fetchResult.hasPermissionDeniedItems()) {
+			addWorkItems(fetchResult.getPermissionDeniedItems(), status.fPermissionDenied);
+		}
+		return status;
+	}
+
+	/**
+	 * Check with one request which linked work items no longer exist.
+	 *
+	 * @param itemManager
+	 * @param monitor
+	 * @return the linked work items that were not found
+	 * @throws TeamRepositoryException
+	 */
+	public List<IWorkItemHandle> findMissingWorkItems(IItemManager itemManager, IProgressMonitor monitor)
+			throws TeamRepositoryException {
+		return checkLinkedWorkItems(itemManager, monitor).getMissing();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static void addWorkItems(List items, List<IWorkItemHandle> workItems) {
+		if (items == null) {
+			return;
+		}
+		for (Object item : items) {
+			if (item instanceof IWorkItemHandle) {
+				workItems.add((IWorkItemHandle) item);
+			}
+		}
+	}
+
+	private void addLinkedWorkItem(IReference reference) {
+		if (reference == null || !reference.isItemReference()) {
+			return;
+		}
+		IItemHandle item = ((IItemReference) reference).getReferencedItem();
+		if (item instanceof IWorkItemHandle) {
+			fLinkedWorkItems.put(item.getItemId().getUuidValue(), (IWorkItemHandle) item);
+		}
+	}
+}
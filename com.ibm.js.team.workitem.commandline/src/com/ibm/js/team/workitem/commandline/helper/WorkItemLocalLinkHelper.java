@@ -12,15 +12,17 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.apache.log4j.Logger;
+import org.eclipse.core.runtime.IProgressMonitor;
 
 import com.ibm.team.links.common.IReference;
 import com.ibm.team.links.common.registry.IEndPointDescriptor;
 // import com.ibm.team.links.common.registry.ILinkTypeRegistry;
 import com.ibm.team.repository.client.ITeamRepository;
 import com.ibm.team.repository.common.TeamRepositoryException;
-import com.ibm.team.rtc.foundation.api.common.progress.IProgressMonitor;
 import com.ibm.team.workitem.common.IWorkItemCommon;
 import com.ibm.team.workitem.common.model.IWorkItem;
+import com.ibm.team.workitem.common.model.IWorkItemHandle;
+import com.ibm.team.workitem.common.model.IWorkItemReferences;
 import com.ibm.team.workitem.common.model.WorkItemEndPoints;
 
 /**
@@ -82,13 +84,46 @@ public class WorkItemLocalLinkHelper {
 //	}
 	
 	public List<IReference> getAllReferences(ITeamRepository teamRepository, Integer workItemId) throws TeamRepositoryException {			
-		IWorkItemCommon workItemCommon= (IWorkItemCommon)teamRepository.getClientLibrary(IWorkItemCommon.class);
-//		IWorkItem targetWorkItem= workItemCommon.findWorkItemById(workItemId.intValue(), IWorkItem.FULL_PROFILE, null);
-		IWorkItem workItem= workItemCommon.findWorkItemById(workItemId, IWorkItem.FULL_PROFILE, null);
+		return getAllReferences(teamRepository, workItemId, null);
+	}
+
+	/**
+	 * Get the references of the checked end points. The references are
+	 * resolved once for all end points, the work item is found with the ID
+	 * profile only.
+	 * 
+	 * @param teamRepository
+	 * @param workItemId
+	 * @param monitor
+	 * @return the references
+	 * @throws TeamRepositoryException
+	 */
+	public List<IReference> getAllReferences(ITeamRepository teamRepository, Integer workItemId,
+			IProgressMonitor monitor) throws TeamRepositoryException {
+		IWorkItem workItem= getWorkItemCommon(teamRepository).findWorkItemById(workItemId, IWorkItem.ID_PROFILE, monitor);
+		if (workItem == null) {
+			return new ArrayList<IReference>();
+		}
+		return getAllReferences(teamRepository, workItem, monitor);
+	}
+
+	/**
+	 * Get the references of the checked end points of a work item that is
+	 * already resolved.
+	 * 
+	 * @param teamRepository
+	 * @param workItem - the work item, any profile
+	 * @param monitor
+	 * @return the references
+	 * @throws TeamRepositoryException
+	 */
+	public List<IReference> getAllReferences(ITeamRepository teamRepository, IWorkItemHandle workItem,
+			IProgressMonitor monitor) throws TeamRepositoryException {
+		IWorkItemReferences workItemReferences= getWorkItemCommon(teamRepository).resolveWorkItemReferences(workItem, monitor);
 		
 		List<IReference> allReferenceLists= new ArrayList<IReference>();
 		for (IEndPointDescriptor endPoint : CHECKED_END_POINTS) {
-			List<IReference> references= workItemCommon.resolveWorkItemReferences(workItem, null).getReferences(endPoint);	
+			List<IReference> references= workItemReferences.getReferences(endPoint);	
 			if (references != null && references.size() > 0 ) {
 				allReferenceLists.addAll(references);
 			}
@@ -97,6 +132,37 @@ public class WorkItemLocalLinkHelper {
 		return allReferenceLists;
 	}
 
+	/**
+	 * Get the links of the checked end points of a work item. Use
+	 * WorkItemLinkSnapshot.findMissingWorkItems() to check the linked work items
+	 * with one request.
+	 * 
+	 * @param teamRepository
+	 * @param workItemId
+	 * @param monitor
+	 * @return the snapshot of the links
+	 * @throws TeamRepositoryException
+	 */
+	public WorkItemLinkSnapshot getLinkSnapshot(ITeamRepository teamRepository, int workItemId,
+			IProgressMonitor monitor) throws TeamRepositoryException {
+		return new WorkItemLinkSnapshot(workItemId, getAllReferences(teamRepository, workItemId, monitor));
+	}
+
+	/**
+	 * Get the links of the checked end points of a work item that is already
+	 * resolved, without looking it up by its ID again.
+	 * 
+	 * @param teamRepository
+	 * @param workItem - the work item, any profile
+	 * @param monitor
+	 * @return the snapshot of the links
+	 * @throws TeamRepositoryException
+	 */
+	public WorkItemLinkSnapshot getLinkSnapshot(ITeamRepository teamRepository, IWorkItem workItem,
+			IProgressMonitor monitor) throws TeamRepositoryException {
+		return new WorkItemLinkSnapshot(workItem.getId(), getAllReferences(teamRepository, workItem, monitor));
+	}
+
 	
 	 /* Get WorkItemCommon
 	 * 
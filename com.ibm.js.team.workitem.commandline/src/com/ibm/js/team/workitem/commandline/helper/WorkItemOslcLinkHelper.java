@@ -12,9 +12,9 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.logging.log4j.Logger;
 import org.eclipse.core.runtime.URIUtil;
@@ -43,170 +43,58 @@ import com.ibm.team.links.common.registry.IEndPointDescriptor;
 import com.ibm.team.links.common.service.ILinkIndexService.LinkTriple;
 import com.ibm.team.repository.common.NotLoggedInException;
 import com.ibm.team.repository.common.TeamRepositoryException;
-import com.ibm.team.repository.common.json.JSONArray;
-import com.ibm.team.repository.common.json.JSONObject;
 import com.ibm.team.repository.common.transport.HttpUtil;
 import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient;
 import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient.IRawRestClientConnection;
 import com.ibm.team.workitem.common.model.IWorkItem;
 import com.ibm.team.workitem.common.model.IWorkItemReferences;
 import com.ibm.team.workitem.common.model.ItemURI;
-import com.ibm.team.workitem.common.model.WorkItemLinkTypes;
 
 /**
  * Class helps with accessing OSLC Link
  * 
+ * One helper is shared by all links of a command run. The link types are
+ * looked up in the immutable OslcLinkType registry.
+ * 
  */
 @SuppressWarnings({ "deprecation" })
 public class WorkItemOslcLinkHelper {
 	public static final String CONFIGURATION_MANAGEMENT_CONTEXT_HEADER_NAME = "X-OLSC-Configuration-Context"; //$NON-NLS-1$
-	// In the LDX calls, the forward link is stored
-	@SuppressWarnings("serial")
-	private static Map<String, String> OSLC_TYPE_MAP = new HashMap<String, String>() {
-		{
-			// ignore com.ibm.team.workitem.linktype.textualReference and relatedArtifact
-			put(WorkItemLinkTypes.AFFECTED_BY_DEFECT /* "com.ibm.team.workitem.linktype.cm.affectedByDefect" */,
-					"http://open-services.net/ns/cm#affectedByDefect");
-			put(WorkItemLinkTypes.AFFECTS_PLAN_ITEM /* "com.ibm.team.workitem.linktype.cm.affectsPlanItem" */,
-					"http://open-services.net/ns/cm#affectsPlanItem");
-			put(WorkItemLinkTypes.CONTRIBUTES_TO_WORK_ITEM /* "com.ibm.team.workitem.linktype.trackedworkitem" */,
-					"http://open-services.net/ns/cm#trackedWorkItem");
-			put(WorkItemLinkTypes.RELATED_WORK_ITEM /* "com.ibm.team.workitem.linktype.relatedworkitem.related" */,
-					"http://open-services.net/ns/cm#relatedChangeRequest");
-			put(WorkItemLinkTypes.TRACKS_WORK_ITEM /* "com.ibm.team.workitem.linktype.tracksworkitem" */,
-					"http://open-services.net/ns/cm#tracksWorkItem");
-
-			put(WorkItemLinkTypes.IMPLEMENTS_REQUIREMENT /* "com.ibm.team.workitem.linktype.implementsRequirement" */,
-					"http://open-services.net/ns/cm#implementsRequirement");
-			put(WorkItemLinkTypes.RELATED_REQUIREMENT /* "com.ibm.team.workitem.linktype.rm.relatedRequirement" */,
-					"http://open-services.net/ns/cm#affectsRequirement");
-
-			put(WorkItemLinkTypes.BLOCKS_EXECUTION_RECORD /*
-															 * "com.ibm.team.workitem.linktype.blocksTestExecutionRecord"
-															 */,
-					"http://open-services.net/ns/cm#blocksTestExecutionRecord");
-			put(WorkItemLinkTypes.AFFECTS_EXECUTION_RESULT /* "com.ibm.team.workitem.linktype.affectsExecutionResult" */,
-					"http://open-services.net/ns/cm#affectsTestResult");
-			put(WorkItemLinkTypes.RELATED_TEST_CASE /* "com.ibm.team.workitem.linktype.qm.relatedTestCase" */,
-					"http://open-services.net/ns/cm#:relatedTestCase");
-			put(WorkItemLinkTypes.RELATED_TEST_PLAN /* "com.ibm.team.workitem.linktype.qm.relatedTestPlan" */,
-					"http://open-services.net/ns/cm#relatedTestPlan");
-			put(WorkItemLinkTypes.RELATED_TEST_SCRIPT /* "com.ibm.team.workitem.linktype.qm.relatedTestScript" */,
-					"http://open-services.net/ns/cm#relatedChangeRequest");
-			put(WorkItemLinkTypes.TESTED_BY_TEST_CASE /* "com.ibm.team.workitem.linktype.testedByTestCase" */,
-					"http://open-services.net/ns/cm#elatedTestScript");
-// RELATED_EXECUTION_RECORD does not return the backlink in the RDF
-			put(WorkItemLinkTypes.RELATED_EXECUTION_RECORD /*
-															 * "com.ibm.team.workitem.linktype.qm.relatedExecutionRecord"
-															 */,
-					"http://open-services.net/ns/cm#relatedTestExecutionRecord");// Related Test Execution Record not ok
-// TODO: add more backlinks
-//			put("none", "http://open-services.net/ns/cm#affectsTestResult");
-//			put("none", "http://open-services.net/ns/cm#ChangeRequest");
-//			put("none", "http://open-services.net/ns/cm#relatedChangeRequest");
-//			put("none", "http://open-services.net/ns/cm#requirementsChangeRequest");
-//			put("none", "http://open-services.net/ns/cm#tracksChangeSet");
-//			put("none", "http://open-services.net/ns/cm#tracksRequirement");
-		}
-	};
-	// Note see also: LinkTypeDTO[] linkTypes= WorkItemLinksData.linkTypes.
-	// com.ibm.team.workitem.common.model.WorkItemLinkTypes
-
-	// Reverse link map... example: The key
-	// "com.ibm.team.workitem.linktype.tracksworkitem" expects to find the
-	// reverse link in the RDF "http://open-services.net/ns/cm#trackedWorkItem"
-	@SuppressWarnings("serial")
-	private static Map<String, String> REVERSE_OSLC_MAP = new HashMap<String, String>() {
-		{
-			// ignore com.ibm.team.workitem.linktype.textualReference and relatedArtifact
-			put(WorkItemLinkTypes.AFFECTED_BY_DEFECT /* "com.ibm.team.workitem.linktype.cm.affectedByDefect" */,
-					"http://open-services.net/ns/cm#affectsPlanItem"); // Affected by Defect not ok
-			put(WorkItemLinkTypes.AFFECTS_PLAN_ITEM /* "com.ibm.team.workitem.linktype.cm.affectsPlanItem" */,
-					"http://open-services.net/ns/cm#affectedByDefect"); // ok
-			put(WorkItemLinkTypes.CONTRIBUTES_TO_WORK_ITEM /* "com.ibm.team.workitem.linktype.trackedworkitem" */,
-					"http://open-services.net/ns/cm#tracksWorkItem"); // ok
-			put(WorkItemLinkTypes.RELATED_WORK_ITEM /* "com.ibm.team.workitem.linktype.relatedworkitem.related" */,
-					"http://open-services.net/ns/cm#relatedChangeRequest");
-			put(WorkItemLinkTypes.TRACKS_WORK_ITEM /* "com.ibm.team.workitem.linktype.tracksworkitem" */,
-					"http://open-services.net/ns/cm#trackedWorkItem"); // ok
-
-			put(WorkItemLinkTypes.IMPLEMENTS_REQUIREMENT /* "com.ibm.team.workitem.linktype.implementsRequirement" */,
-					"http://open-services.net/ns/rm#implementedBy"); // ok
-			put(WorkItemLinkTypes.RELATED_REQUIREMENT /* "com.ibm.team.workitem.linktype.rm.relatedRequirement" */,
-					"http://open-services.net/ns/rm#affectedBy"); // Affects Requirement ok
-
-			put(WorkItemLinkTypes.BLOCKS_EXECUTION_RECORD /*
-															 * "com.ibm.team.workitem.linktype.blocksTestExecutionRecord"
-															 */,
-					"http://open-services.net/ns/qm#blockedByChangeRequest"); // ok
-			put(WorkItemLinkTypes.AFFECTS_EXECUTION_RESULT /* "com.ibm.team.workitem.linktype.affectsExecutionResult" */,
-					"http://open-services.net/ns/qm#affectedByChangeRequest"); // ok
-			put(WorkItemLinkTypes.RELATED_TEST_CASE /* "com.ibm.team.workitem.linktype.qm.relatedTestCase" */,
-					"http://open-services.net/ns/qm#relatedChangeRequest"); // ok
-			put(WorkItemLinkTypes.RELATED_TEST_PLAN /* "com.ibm.team.workitem.linktype.qm.relatedTestPlan" */,
-					"http://open-services.net/ns/qm#relatedChangeRequest"); // ok
-			put(WorkItemLinkTypes.RELATED_TEST_SCRIPT /* "com.ibm.team.workitem.linktype.qm.relatedTestScript" */,
-					"http://open-services.net/ns/qm#relatedChangeRequest"); // ok
-			put(WorkItemLinkTypes.TESTED_BY_TEST_CASE /* "com.ibm.team.workitem.linktype.testedByTestCase" */,
-					"http://open-services.net/ns/qm#testsChangeRequest"); // test
-// RELATED_EXECUTION_RECORD does not return the backlink in the RDF
-			put(WorkItemLinkTypes.RELATED_EXECUTION_RECORD /*
-															 * "com.ibm.team.workitem.linktype.qm.relatedExecutionRecord"
-															 */, "http://open-services.net/ns/qm#relatedChangeRequest");// Related
-																														// Test
-																														// Execution
-																														// Record
-																														// not
-																														// ok
-// TODO: add more backlinks
-//			put("none", "http://open-services.net/ns/cm#affectsTestResult");
-//			put("none", "http://open-services.net/ns/cm#ChangeRequest");
-//			put("none", "http://open-services.net/ns/cm#relatedChangeRequest");
-//			put("none", "http://open-services.net/ns/cm#requirementsChangeRequest");
-//			put("none", "http://open-services.net/ns/cm#tracksChangeSet");
-//			put("none", "http://open-services.net/ns/cm#tracksRequirement");
-		}
-	};
-	private static Map<String, Boolean> EXCLUDED_TYPES = new HashMap<String, Boolean>() {
-		{
-			put("relatedArtifact", new Boolean(true));
-			put("com.ibm.team.workitem.linktype.relatedArtifact", new Boolean(true));
-//			put("com.ibm.team.workitem.linktype.cm.affectedByDefect", new Boolean(true)); // does not work? TODO: Test affectedByDefect
-			put("com.ibm.team.workitem.linktype.textualReference", new Boolean(true)); // not needed
-
-			// "com.ibm.team.workitem.linktype.qm.relatedExecutionRecord" not yet supported
-			put(WorkItemLinkTypes.RELATED_EXECUTION_RECORD /*
-															 * "com.ibm.team.workitem.linktype.qm.relatedExecutionRecord"
-															 */, new Boolean(true));
-		}
-	};
+	// Link types without mapping that were reported
+	private final Set<String> fMissingEndpoints = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * The helper has no state per link and can be shared by threads. The
+	 * results are written to the report of the work item.
+	 */
+	public WorkItemOslcLinkHelper() {
+	}
 
 	public boolean validateLdxWithoutGCLinks(ValidateOSLCLinksCommand command, IWorkItem workItem,
-			IEndPointDescriptor endPointDescriptor, IReference reference, Logger logger)
+			IEndPointDescriptor endPointDescriptor, IReference reference, WorkItemLinkReport report)
 			throws NotLoggedInException, IOException, TeamRepositoryException, URISyntaxException {
-		setTracingLog(logger);
 		boolean backLinkMissing = false;
 
-		URI currentWorkItemURI = getWorkItemUri(command, workItem, logger);
+		URI currentWorkItemURI = getWorkItemUri(command, workItem);
 
 //		IWorkItemReferences targetReferences = getWorkItemTargetReferences(command, workItem, logger);
 
 		if (reference.getLink().getLinkTypeId().equals("com.ibm.team.workitem.linktype.qm.relatedExecutionRecord")) {
-			getTracingLog().debug(
+			report.debug(
 					" Backlink verification of link type Related Test Execution Record (\"com.ibm.team.workitem.linktype.qm.relatedExecutionRecord\") is not yet supported.");
 		}
-		getTracingLog().debug("\nChecking: " + reference.getLink().getSourceRef().toString() + " > "
+		report.debug("\nChecking: " + reference.getLink().getSourceRef().toString() + " > "
 				+ reference.getLink().getLinkType().getLinkTypeId() + " > "
 				+ reference.getLink().getTargetRef().toString());
 		// Fetch and validate the value
-		if (reference.isURIReference() && !EXCLUDED_TYPES.containsKey(reference.getLink().getLinkTypeId())
+		if (reference.isURIReference() && !OslcLinkType.isExcluded(reference.getLink().getLinkTypeId())
 				&& !isSelfReference(reference, workItem)) {
 			try {
 				GetRDFResourceParams oslcResource = new GetRDFResourceParams();
 				oslcResource.oslcCoreVersion = "2.0";
 				oslcResource.resourceURL = reference.getLink().getTargetRef().createURI().toString();
 				oslcResource.oslcResourceID = reference.getLink().getTargetRef().createURI().toString();
-				getTracingLog().debug("\n... Checking link in work item: " + workItem.getId() + " |endPoint id: "
+				report.debug("\n... Checking link in work item: " + workItem.getId() + " |endPoint id: "
 						+ endPointDescriptor.getId() + " |linkType: " + reference.getLink().getLinkTypeId()
 						+ "\n... Fetching target: " + oslcResource.resourceURL);
 				String gcUri = null; // test
@@ -217,12 +105,12 @@ public class WorkItemOslcLinkHelper {
 																												// >testldx
 //							getTracingLog().trace("\n... Loading RDF resource: " + oslcResource );
 
-					ResourceResultDTO result = getRDFResource(command, oslcResource, /* gcUri */ null); // Read result
+					ResourceResultDTO result = getRDFResource(command, oslcResource, /* gcUri */ null, report); // Read result
 
 					boolean isValid = false;
 					if (result != null && !result.isSetErrorMessage()) {
 						isValid = validateRDFBackLink(endPointDescriptor, result, currentWorkItemURI, oslcResource,
-								workItem); // log validation
+								workItem, report); // log validation
 						backLinkMissing = backLinkMissing || !isValid;
 //								backLinkMessage += "\n RDF Linked resource " + oslcResource.resourceURL + " isValid:"
 //										+ isValid + " error:" + result.getErrorMessage();
@@ -233,15 +121,16 @@ public class WorkItemOslcLinkHelper {
 					}
 				} else { // never... use REST
 					boolean wasFound = false;
-					String targetLinkType = OSLC_TYPE_MAP.get(reference.getLink().getLinkTypeId());
-					if ((isLocalLink(reference.getLink().getTargetRef().createURI())
+					OslcLinkType oslcLinkType = OslcLinkType.fromId(reference.getLink().getLinkTypeId());
+					String targetLinkType = oslcLinkType == null ? null : oslcLinkType.getOslcLinkType();
+					if ((isLocalLink(reference.getLink().getTargetRef().createURI(), report)
 							|| workItem.getHTMLSummary().getPlainText().toLowerCase().indexOf(">testldxlocal") != -1) // Test
 							&& workItem.getHTMLSummary().getPlainText().toLowerCase().indexOf(">testldxrest") == -1) { // Test,
 																														// skip
 																														// service
 																														// use
 																														// REST
-						getTracingLog().debug("\n... Reading local link index for work item: " + workItem.getId()
+						report.debug("\n... Reading local link index for work item: " + workItem.getId()
 								+ " |GC: "
 								+ (gcUri == null ? "[None]"
 										: gcUri + " |endPoint id: " + endPointDescriptor.getId() + " |linkType: "
@@ -250,37 +139,32 @@ public class WorkItemOslcLinkHelper {
 
 						if (!wasFound || (workItem.getHTMLSummary().getPlainText().toLowerCase()
 								.indexOf(">testldxrest") != -1)) {
-							getTracingLog().debug("\n... Reading REST link index for Item: " + workItem.getId()
+							report.debug("\n... Reading REST link index for Item: " + workItem.getId()
 									+ " |GC: "
 									+ (gcUri == null ? "[None]"
 											: gcUri + " |endPoint: " + endPointDescriptor.getId() + " |linkType: "
 													+ reference.getLink().getLinkTypeId() + " |maps to: "
 													+ targetLinkType + " |target: " + oslcResource.resourceURL));
 
-							JSONArray ldxBacklinks = command.getLDXBackLinkViaRest(
+							LinkTripleIndex ldxBacklinks = command.getLDXBackLinkViaRest(
 									reference.getLink().getTargetRef().createURI(), gcUri == null ? "" : gcUri,
 									targetLinkType);
 
 							if (ldxBacklinks == null) {
-								getTracingLog().trace("\n... *** Could not parse result.");
+								report.trace("\n... *** Could not parse result.");
 							} else {
-								for (int i = 0; i < ldxBacklinks.size(); i++) {
-									JSONObject triple = (JSONObject) ldxBacklinks.get(i);
-									wasFound = command.isLinkInTripleEqual(triple, currentWorkItemURI.toString(),
-											targetLinkType, oslcResource.resourceURL); // TODO: Check link parameters?
-									if (wasFound) {
-										getTracingLog().debug("\n+ OK. Found LDX (REST) backlink to Work item: "
-												+ workItem.getId() + " |source: " + triple.get("sourceURL")
-												+ " |linkType: " + triple.get("linkType") + " |Target:"
-												+ triple.get("targetURL"));
-									} else {
-										getTracingLog().trace("\n... No match checking LDX link with source: "
-												+ triple.get("sourceURL") + " |linkType: " + triple.get("linkType")
-												+ " |Target: " + triple.get("targetURL"));
-									}
+								wasFound = ldxBacklinks.contains(currentWorkItemURI.toString(), targetLinkType,
+										oslcResource.resourceURL); // TODO: Check link parameters?
+								if (wasFound) {
+									report.debug("\n+ OK. Found LDX (REST) backlink to Work item: "
+											+ workItem.getId() + " |source: " + currentWorkItemURI + " |linkType: "
+											+ targetLinkType + " |Target:" + oslcResource.resourceURL);
+								} else {
+									report.trace("\n... No match in " + ldxBacklinks.size()
+											+ " LDX links for work item: " + workItem.getId());
 								}
 								if (!wasFound) {
-									getTracingLog().warn("\n*** Warning *** Backlink not found for linkType: "
+									report.warn("\n*** Warning *** Backlink not found for linkType: "
 											+ reference.getLink().getLinkTypeId() + " |target: "
 											+ reference.getLink().getTargetRef().createURI().toString() + "|gc: "
 											+ gcUri);
@@ -293,20 +177,20 @@ public class WorkItemOslcLinkHelper {
 					} // end LDX Service plus REST
 				}
 			} catch (Exception e) {
-				getTracingLog().error("-Error 1:" + e + "\n Exception reading link: " + endPointDescriptor.getId()
+				report.error("-Error 1:" + e + "\n Exception reading link: " + endPointDescriptor.getId()
 						+ " message: " + e.getMessage());
 				// backLinkUnreachable = true;
 			}
 		} else { // not applicable or excluded
-			getTracingLog().debug("\n... Excluding endPoint id: " + endPointDescriptor.getId() + " |linkType: "
+			report.debug("\n... Excluding endPoint id: " + endPointDescriptor.getId() + " |linkType: "
 					+ reference.getLink().getLinkTypeId() + " |isUri: " + reference.isURIReference() + " |isExcluded: "
-					+ !EXCLUDED_TYPES.containsKey(reference.getLink().getLinkTypeId()) + " |isSelfReference: "
+					+ !OslcLinkType.isExcluded(reference.getLink().getLinkTypeId()) + " |isSelfReference: "
 					+ isSelfReference(reference, workItem));
 		}
 		return backLinkMissing;
 	}
 
-	private URI getWorkItemUri(ValidateOSLCLinksCommand command, IWorkItem workItem, Logger logger) {
+	private URI getWorkItemUri(ValidateOSLCLinksCommand command, IWorkItem workItem) {
 		// ItemURI.createWorkItemURI(workItemService.getAuditableCommon(),
 		// workItem.getId());
 		URI currentWorkItemURI = ItemURI.createWorkItemURI(command.getAuditableCommon2(), workItem.getId());
@@ -357,23 +241,12 @@ public class WorkItemOslcLinkHelper {
 //		https://m4:9443/jazz/resource/itemName/com.ibm.team.workitem.WorkItem/179
 	}
 
-	public Logger fTracingLog;
-
-	public final Logger getTracingLog() {
-//		return LogFactory.getLog("com.ibm.team.workitem.verify.backlinks.log");
-		return fTracingLog;
-	}
-
-	public void setTracingLog(Logger log) {
-		fTracingLog = log;
-	}
-
-	private boolean isLocalLink(URI uri) throws MalformedURLException, URISyntaxException {
+	private boolean isLocalLink(URI uri, WorkItemLinkReport report) throws MalformedURLException, URISyntaxException {
 
 		String localUri = getLocalUri();// workItemService.getAuditableServer().getRepositoryURI();
 		String path = URIUtil.fromString(localUri).getPath();
 		localUri = localUri.replace(path, "");
-		getTracingLog().trace("\n... is local uri: " + uri.toURL().toString() + " starts with: " + localUri + " = "
+		report.trace("\n... is local uri: " + uri.toURL().toString() + " starts with: " + localUri + " = "
 				+ uri.toURL().toString().startsWith(localUri));
 		if (uri.toURL().toString().startsWith(localUri))
 			return true;
@@ -382,12 +255,13 @@ public class WorkItemOslcLinkHelper {
 
 	// Do-over with LinkTriple
 	@SuppressWarnings("unused")
-	private boolean isLinkInTripleEqual(LinkTriple triple, String sourceURL, String linkType, String targetURL) {
+	private boolean isLinkInTripleEqual(LinkTriple triple, String sourceURL, String linkType, String targetURL,
+			WorkItemLinkReport report) {
 		if (triple == null) {
-			getTracingLog().trace("\n..... null triple"); // should not happen
+			report.trace("\n..... null triple"); // should not happen
 			return false;
 		}
-		getTracingLog().trace("\n..... LinkTriple is triple equal source:"
+		report.trace("\n..... LinkTriple is triple equal source:"
 				+ (triple.sourceURL.equals(sourceURL) && triple.linkType.equals(linkType)
 						&& triple.targetURL.equals(targetURL))
 				+ "\nsource: " + triple.sourceURL + " = " + sourceURL + " : " + triple.sourceURL.equals(sourceURL)
@@ -400,7 +274,8 @@ public class WorkItemOslcLinkHelper {
 
 	// Non-gc path
 	public com.ibm.team.calm.foundation.common.internal.rest.dto.ResourceResultDTO getRDFResource(
-			ValidateOSLCLinksCommand command, GetRDFResourceParams oslcResource, String gcUri)
+			ValidateOSLCLinksCommand command, GetRDFResourceParams oslcResource, String gcUri,
+			WorkItemLinkReport report)
 			throws TeamRepositoryException, URISyntaxException {
 		ResourceResultDTO resultDTO = RestFactory.eINSTANCE.createResourceResultDTO();
 
@@ -410,8 +285,7 @@ public class WorkItemOslcLinkHelper {
 					.getResourceDescription(oslcResource.oslcResourceID);
 			if (resourceDescription != null && OSLCResourceAccess.useOslcVersion1(resourceDescription)) {
 				resultDTO.setErrorMessage("OSLC Core 2 is disabled.");
-				getTracingLog()
-						.debug("VerifyBacklinksOperation[4] OSLC Not Available.\nOSLC Core Version 2 is disabled");
+				report.debug("VerifyBacklinksOperation[4] OSLC Not Available.\nOSLC Core Version 2 is disabled");
 				return resultDTO;
 			}
 		}
@@ -433,18 +307,18 @@ public class WorkItemOslcLinkHelper {
 //					ContentType.RDF.getValue(), headers, resourceDescription, oslcCoreVersion);
 
 			String content = RDFUtils.toXML(response.getResponseStream(), oslcResource.resourceURL);
-            if(getTracingLog().isTraceEnabled()) {
-            	getTracingLog().trace("Read resource: " + oslcResource.resourceURL + "\n" + content);
+            if(report.isTraceEnabled()) {
+            	report.trace("Read resource: " + oslcResource.resourceURL + "\n" + content);
             }
 			resultDTO.setContent(content);
 
 			return resultDTO;
 		} catch (RDFParseException e) {
-			getTracingLog().debug("VerifyBacklinksOperation[5] RDF Parse Exception\n" + e);
+			report.debug("VerifyBacklinksOperation[5] RDF Parse Exception\n" + e);
 			resultDTO.setErrorMessage(e.getMessage());
 			return resultDTO;
 		} catch (XMLSerializeException e) {
-			getTracingLog().debug("VerifyBacklinksOperation[7] XMLSerializeException\n" + e);
+			report.debug("VerifyBacklinksOperation[7] XMLSerializeException\n" + e);
 			resultDTO.setErrorMessage(e.getMessage());
 			throw new TeamRepositoryException(e);
 		}
@@ -456,20 +330,18 @@ public class WorkItemOslcLinkHelper {
 	 * <oslc_cm:trackedWorkItem>https://m4:9443/jazz/resource/itemName/com.ibm.team.
 	 * workitem.WorkItem/175</oslc_cm:trackedWorkItem>
 	 */
-	private static ArrayList<String> fMissingEndpointList = new ArrayList<String>();
-
 	private boolean validateRDFBackLink(IEndPointDescriptor targetEndPoint, ResourceResultDTO targetDTO, URI sourceUri,
-			GetRDFResourceParams resource, IWorkItem workItem) {
+			GetRDFResourceParams resource, IWorkItem workItem, WorkItemLinkReport report) {
 		String sourceLinkTypeId = targetEndPoint.getLinkType().getLinkTypeId();
-		String targetOslcLinkTypeId = REVERSE_OSLC_MAP.get(sourceLinkTypeId);
-		getTracingLog().debug("\n... Checking OSLC response for backlink with sourceLinkType: " + sourceLinkTypeId
+		OslcLinkType oslcLinkType = OslcLinkType.fromId(sourceLinkTypeId);
+		String targetOslcLinkTypeId = oslcLinkType == null ? null : oslcLinkType.getReverseOslcLinkType();
+		report.debug("\n... Checking OSLC response for backlink with sourceLinkType: " + sourceLinkTypeId
 				+ " |targetLinkType: " + targetOslcLinkTypeId);
 		if (targetOslcLinkTypeId == null) {
-			if (fMissingEndpointList.contains(sourceLinkTypeId)) { // Only report missing tags once
-				getTracingLog().debug("\n Missing OSLC endpoint mapping for: " + sourceLinkTypeId
+			if (fMissingEndpoints.add(sourceLinkTypeId)) { // Only report missing tags once
+				report.debug("\n Missing OSLC endpoint mapping for: " + sourceLinkTypeId
 						+ ". Backlink was not checked for this link type.");
 //				getTracingLog().debug("\n Missing OSLC endpoint mapping for: " + sourceLinkTypeId + ". Nothing was checked for this link type.\n" + targetDTO.getContent() );
-//					fMissingEndpointList.add(sourceLinkTypeId);
 			}
 			return true;
 		}
@@ -508,7 +380,7 @@ public class WorkItemOslcLinkHelper {
 				backlinkMessage = "*** Backlink not found: " + targetOslcLinkTypeId + "\nSource: " + sourceUri.toString()
 				        + "\n> " + targetEndPoint.getDisplayName() + "\n> "
 				        + resource.resourceURL;
-				if (getTracingLog().isTraceEnabled()) {
+				if (report.isTraceEnabled()) {
 					backlinkMessage += " TargetDTO:\n" + targetDTO.getContent();
 				}
 						
@@ -516,15 +388,15 @@ public class WorkItemOslcLinkHelper {
 				backlinkMessage = "Found backlink from item: " + itemShortId + " " + itemTitle + "\n" + backlinkMessage;
 			}
 		} catch (Exception ex) {
-			getTracingLog().error("\nError parsing backlink RDF: " + ex + "\n" + ex.getMessage() + " Content\n"
+			report.error("\nError parsing backlink RDF: " + ex + "\n" + ex.getMessage() + " Content\n"
 					+ new String(targetDTO.getContent().getBytes()));
 		}
 		if (backlinkFound) {
-			getTracingLog().debug("\n+ OK. Found RDF backlink to work item: " + workItem.getId() + " |source: "
+			report.debug("\n+ OK. Found RDF backlink to work item: " + workItem.getId() + " |source: "
 					+ resource.resourceURL + " |reverse of linkType: " + targetEndPoint.getDisplayName() + " |to: "
 					+ sourceUri + "\n... " + backlinkMessage);
 		} else {
-			getTracingLog().warn("\n*** Warning: backlink not found in work item " + sourceUri + " |target: "
+			report.warn("\n*** Warning: backlink not found in work item " + sourceUri + " |target: "
 					+ targetEndPoint.getDisplayName() + "\n" + backlinkMessage);
 		}
 		return backlinkFound;
@@ -9,37 +9,32 @@ package com.ibm.js.team.workitem.commandline.helper;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
-import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.commons.io.FileUtils;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import com.ibm.js.team.workitem.commandline.commands.ValidateWorkItemStatesCommand;
 import com.ibm.js.team.workitem.commandline.utils.AttachmentUtil;
-import com.ibm.juno.core.utils.IOUtils;
-import com.ibm.team.calm.foundation.common.SecureDocumentBuilderFactory;
+import com.ibm.js.team.workitem.commandline.utils.BufferedLog;
+import com.ibm.js.team.workitem.commandline.utils.OrderedTaskRunner;
+import com.ibm.js.team.workitem.commandline.utils.UUIDVisitedSet;
+import com.ibm.js.team.workitem.commandline.utils.XmlParserUtil;
 import com.ibm.team.foundation.common.text.XMLString;
 import com.ibm.team.repository.client.ITeamRepository;
 import com.ibm.team.repository.common.IAuditable;
 import com.ibm.team.repository.common.IAuditableHandle;
 import com.ibm.team.repository.common.IItemType;
-import com.ibm.team.repository.common.transport.HttpUtil;
-import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient;
-import com.ibm.team.repository.transport.client.ITeamRawRestServiceClient.IRawRestClientConnection;
 import com.ibm.team.workitem.common.IWorkItemCommon;
 import com.ibm.team.workitem.common.model.IAttributeHandle;
 import com.ibm.team.workitem.common.model.IComments;
@@ -103,9 +98,8 @@ public class WorkItemStateHelper {
 		return fTeamRepository;
 	}	
 	
-	@SuppressWarnings("unchecked")
-	public List<RepositoryStateModel> fetchWorkItemStates(String workItemId, IAuditableHandle workItemHandle, ValidateWorkItemStatesCommand command)  {
-		List<RepositoryStateModel> result= new ArrayList<RepositoryStateModel>();
+	public RepositoryStateGraph fetchWorkItemStates(String workItemId, IAuditableHandle workItemHandle, ValidateWorkItemStatesCommand command)  {
+		RepositoryStateGraph result= new RepositoryStateGraph();
 
 		try {
 			List<IAuditableHandle> stateHandles= null;
@@ -118,29 +112,17 @@ public class WorkItemStateHelper {
 				return null;
 			}
 			// For each state create a state model
-			// For each state fetch the raw xml from repodebug and log it... the api is used later to read the state as well but the api can fail more
+			// The raw xml is fetched from repodebug and logged once, when the state is validated... the api is used later to read the state as well but the api can fail more
 			if (command.isUseRest()) {
-				command.logger.trace("... State handles fetched. For each handle, GET raw item state from repodebug REST...");
+				command.logger.trace("... State handles fetched. Raw item states are read from repodebug REST when they are validated...");
 				for (IAuditableHandle stateHandle: stateHandles) {
-					try {
-						String stateId= stateHandle.getStateId().getUuidValue();
-						RepositoryStateModel storedStateModel= new RepositoryStateModel(stateId, stateHandle); // no content
-						if (command.logger.isTraceEnabled()) {
-							getItemRawContentViaRest(command, stateId, true); // for logging
-						}
-						result.add(storedStateModel);
-					} catch (Exception e) {
-						command.setUseRest(false);
-						command.logger.error("Exception fetching raw content from repodebug via REST GET. Enable REPODEBUG in Advanced Properties and ensure the user has JazzAdmin priveledges. Item will be read by Item API. REST attempts are disabled. item:" + workItemHandle.getItemId().getUuidValue());
-						e.printStackTrace();
-						break;
-					}
+					String stateId= stateHandle.getStateId().getUuidValue();
+					result.add(new RepositoryStateModel(stateId, stateHandle)); // no content
 				}
 			}
 			try {
 				command.logger.trace("... Fetching all work item states via ItemManager API (fetchCompleteStates)...");
 
-				List<String>allPredecessorIds= new ArrayList<String>();
 //				List<IWorkItem>completeStates= null;
 //				try {					
 //					// completeStates uses a lot of memory and an exception in one state voids the read of all states
@@ -150,35 +132,17 @@ public class WorkItemStateHelper {
 //					e.printStackTrace();
 //					command.logger.error(e.getMessage() + "\nError reading complete states. Reading individual states...");
 //				}
-				// Read each state one at a time and validate.
-				for (IAuditableHandle stateHandle : stateHandles) {
-					List<IWorkItem>oneStateList= null;
-
-					List<IAuditableHandle> oneState= new ArrayList<IAuditableHandle>();
-					oneState.add(stateHandle);
-					command.logger.trace("... Fetching state: " + stateHandle.getStateId().getUuidValue() + " for item " + stateHandle.getItemId().getUuidValue()) ;
-					try {							
-						oneStateList = (List<IWorkItem>)this.fTeamRepository.itemManager().fetchCompleteStates(oneState, this.fMonitor);
-					} catch (Exception ee) {
-						ee.printStackTrace();
-						command.logger.error("... Failed to load state: " + stateHandle.getItemId().getUuidValue());
-					}
-					if (oneStateList != null) {
-						findPredecessorInStateList(result, oneStateList, allPredecessorIds, command);
-					}
-				}					
-
-				// Search for the "current state" in the stateModel results
-				for (RepositoryStateModel stateModel: result) {
-					String stateId= stateModel.getStateId();
-					boolean isCurrent= !allPredecessorIds.contains(stateId);
-					stateModel.setIsCurrentState(isCurrent);
-					if (isCurrent) {							
-						command.logger.info("Current state is: " + stateId + " for  Work Item " +workItemHandle.getItemId().getUuidValue());
-					}
-					if (stateModel.getPredecessorStateId() == null) {							
-						command.logger.info("Initial state is: " + stateId + " for  Work Item " +workItemHandle.getItemId().getUuidValue());
-					}
+				// Read the states in chunks and validate. If a chunk fails, its states are read one at a time.
+				int chunkSize= command.getStateChunkSize();
+				for (int start= 0; start < stateHandles.size(); start+= chunkSize) {
+					List<IAuditableHandle> chunk= stateHandles.subList(start, Math.min(start + chunkSize, stateHandles.size()));
+					List<IWorkItem> chunkStateList= fetchCompleteStates(chunk, command);
+					addStatesToGraph(result, chunkStateList, command);
+				}
+
+				// Search for the "current state" in the state graph
+				logCurrentAndInitialStates(result, workItemHandle, command);
+				for (RepositoryStateModel stateModel: result.getStates()) {
 					stateModel.setWorkItemId(workItemId);
 				}
 				
@@ -195,51 +159,96 @@ public class WorkItemStateHelper {
 		return result;
 	}
 
-	public List<RepositoryStateModel> findPredecessorInStateList(List<RepositoryStateModel> result, List<IWorkItem> stateList, List<String>allPredecessorIds, ValidateWorkItemStatesCommand command)  {
-			boolean isStateFoundInResult=false;
-			for (IWorkItem workItem : stateList) {
-//					command.logger.trace("...... Fetched Work Item State:" + workItemStateId + "\nWork Item: " + workItem.toString().replaceAll("Proxy of", ""));
-					String workItemStateId= workItem.getStateId().getUuidValue();			
-					
-					// Find the predecessorStateId if the state is already in the result
-					for (RepositoryStateModel stateModel : result) {
-
-						if (stateModel.getStateId().equals(workItemStateId)) {
-							command.logger.trace("...... Formatting state: " + workItemStateId + "\nWork Item: " + simplifyTraceString(workItem.getFullState().toString()));
-							stateModel.setWorkItem(workItem);
-							if (workItem != null && workItem.getPredecessorState() != null || workItem.getMergePredecessorState() != null ) {								
-								String predecessorStateId= workItem.getPredecessorState() != null ? workItem.getPredecessorState().getStateId().getUuidValue() :
-									workItem.getMergePredecessorState() != null ? workItem.getMergePredecessorState().getStateId().getUuidValue() : "nil";
-									stateModel.setPredecessorStateId(predecessorStateId);
-									allPredecessorIds.add(predecessorStateId); // used to find first item
-							}
-							isStateFoundInResult=true;
-//							stateModel.setItemContent(workItem.getFullState().toString()); // too much memory
-							break;
-						}
-					}
-					// Find the predecessorStateId if the state is not yet in the result... add to result
-					if (!isStateFoundInResult) {
-						command.logger.trace("...... Rendering state: " + workItemStateId + "\nWork Item: " + workItem.getFullState().toString());
-						RepositoryStateModel stateModel= new RepositoryStateModel(workItemStateId, workItem);
-						stateModel.setWorkItem(workItem);
-						if (workItem != null) {								
-							String predecessorStateId= workItem.getPredecessorState() != null ? workItem.getPredecessorState().getStateId().getUuidValue() :
-								workItem.getMergePredecessorState() != null ? workItem.getMergePredecessorState().getStateId().getUuidValue() : "nil";
-								stateModel.setPredecessorStateId(predecessorStateId);
-								allPredecessorIds.add(predecessorStateId); // used to find first item
-						}
-//						stateModel.setItemContent(workItem.getFullState().toString()); // Too much memory
-						result.add(stateModel);
-					}
-				}
-		return result;
+	/**
+	 * Fetch the complete states for a chunk of state handles with one request.
+	 * If the chunk fails, fetch the states one at a time, so that a corrupt
+	 * state does not void the read of the other states.
+	 * 
+	 * @param stateHandles
+	 * @param command
+	 * @return the states that could be fetched
+	 */
+	@SuppressWarnings("unchecked")
+	private List<IWorkItem> fetchCompleteStates(List<IAuditableHandle> stateHandles, ValidateWorkItemStatesCommand command) {
+		List<IWorkItem> stateList= new ArrayList<IWorkItem>(stateHandles.size());
+		try {
+			command.logger.trace("... Fetching " + stateHandles.size() + " states for item " + stateHandles.get(0).getItemId().getUuidValue());
+			addStates(stateList, (List<IWorkItem>)this.fTeamRepository.itemManager().fetchCompleteStates(stateHandles, this.fMonitor));
+			return stateList;
+		} catch (Exception e) {
+			command.logger.error(e.getMessage() + "\n... Failed to load " + stateHandles.size() + " states. Reading individual states...");
+		}
+		for (IAuditableHandle stateHandle : stateHandles) {
+			List<IAuditableHandle> oneState= new ArrayList<IAuditableHandle>();
+			oneState.add(stateHandle);
+			command.logger.trace("... Fetching state: " + stateHandle.getStateId().getUuidValue() + " for item " + stateHandle.getItemId().getUuidValue()) ;
+			try {							
+				addStates(stateList, (List<IWorkItem>)this.fTeamRepository.itemManager().fetchCompleteStates(oneState, this.fMonitor));
+			} catch (Exception ee) {
+				ee.printStackTrace();
+				command.logger.error("... Failed to load state: " + stateHandle.getStateId().getUuidValue() + " for item " + stateHandle.getItemId().getUuidValue());
+			}
+		}
+		return stateList;
+	}
+
+	private void addStates(List<IWorkItem> stateList, List<IWorkItem> fetchedStates) {
+		if (fetchedStates == null) {
+			return;
+		}
+		for (IWorkItem state : fetchedStates) {
+			if (state != null) {
+				stateList.add(state);
+			}
+		}
+	}
+
+	/**
+	 * Add the fetched states to the state graph. A state that is already in the
+	 * graph, because it was found via REST, gets the work item and the edges.
+	 * 
+	 * @param graph
+	 * @param stateList
+	 * @param command
+	 * @return the graph
+	 */
+	public RepositoryStateGraph addStatesToGraph(RepositoryStateGraph graph, List<IWorkItem> stateList, ValidateWorkItemStatesCommand command)  {
+		for (IWorkItem workItem : stateList) {
+			String workItemStateId= workItem.getStateId().getUuidValue();
+			RepositoryStateModel stateModel= graph.getState(workItemStateId);
+			if (stateModel != null) {
+				command.logger.trace("...... Formatting state: " + workItemStateId + "\nWork Item: " + simplifyTraceString(workItem.getFullState().toString()));
+			} else {
+				command.logger.trace("...... Rendering state: " + workItemStateId + "\nWork Item: " + workItem.getFullState().toString());
+				stateModel= graph.add(new RepositoryStateModel(workItemStateId, workItem));
+			}
+			stateModel.setWorkItem(workItem);
+//			stateModel.setItemContent(workItem.getFullState().toString()); // too much memory
+			graph.setPredecessors(stateModel, getStateId(workItem.getPredecessorState()), getStateId(workItem.getMergePredecessorState()));
+		}
+		return graph;
+	}
+
+	private String getStateId(IAuditableHandle stateHandle) {
+		if (stateHandle == null || stateHandle.getStateId() == null) {
+			return null;
+		}
+		return stateHandle.getStateId().getUuidValue();
+	}
+
+	private void logCurrentAndInitialStates(RepositoryStateGraph graph, IAuditableHandle itemHandle, ValidateWorkItemStatesCommand command) {
+		for (RepositoryStateModel stateModel: graph.computeCurrentStates()) {
+			command.logger.info("Current state is: " + stateModel.getStateId() + " for  Work Item " + itemHandle.getItemId().getUuidValue());
+		}
+		for (RepositoryStateModel stateModel: graph.getRoots()) {
+			command.logger.info("Initial state is: " + stateModel.getStateId() + " for  Work Item " + itemHandle.getItemId().getUuidValue());
+		}
 	}
 
 	
 	@SuppressWarnings("unchecked")
-	public List<RepositoryStateModel> fetchAuditableStates(IAuditableHandle rootHandle, ValidateWorkItemStatesCommand command)  {
-		List<RepositoryStateModel> result= new ArrayList<RepositoryStateModel>();
+	public RepositoryStateGraph fetchAuditableStates(IAuditableHandle rootHandle, ValidateWorkItemStatesCommand command)  {
+		RepositoryStateGraph result= new RepositoryStateGraph();
 
 		try {
 			List<IAuditableHandle> stateHandles= null;
@@ -251,69 +260,29 @@ public class WorkItemStateHelper {
 				return null;
 			}
 			
-			command.logger.trace("... State handles fetched. For each handle, GET raw item state from repodebug...");
+			command.logger.trace("... State handles fetched. Raw item states are read from repodebug REST when they are validated...");
 			for (IAuditableHandle stateHandle: stateHandles) {
-				try {
-					String stateId= stateHandle.getStateId().getUuidValue();
-					RepositoryStateModel stateModel= new RepositoryStateModel(stateId, stateHandle);
-					getItemRawContentViaRest(command, stateId, true); // for logging
-					result.add(stateModel);
-				} catch (Exception e) {
-					command.logger.error("Exception fetching raw content from repodebug via REST GET. Enable REPODEBUG in Advanced Properties and ensure the user has JazzAdmin priveledges. Item will be verified by the Item API only. item:" + rootHandle.getItemId().getUuidValue());
-					e.printStackTrace();
-				}
+				String stateId= stateHandle.getStateId().getUuidValue();
+				result.add(new RepositoryStateModel(stateId, stateHandle));
 			}
 		
 			try {
-				command.logger.trace("... REST fetch via repodebug complete. Fetch all work item states from item manager using the repository API (fetchCompleteStates)...");
-				boolean isFound=false;
-				List<String>allPredecessorIds= new ArrayList<String>();
+				command.logger.trace("... Fetch all work item states from item manager using the repository API (fetchCompleteStates)...");
 				List<IWorkItem>completeStates= (List<IWorkItem>)this.fTeamRepository.itemManager().fetchCompleteStates(stateHandles, this.fMonitor);
 				for (IWorkItem workItem : completeStates) {
 					String workItemStateId= workItem.getStateId().getUuidValue();
 					command.logger.debug("...... Fetched Work Item State:" + workItemStateId + "\nWork Item: " + workItem.toString().replaceAll("Proxy of", ""));
-					for (RepositoryStateModel stateModel : result) {
-
-						if (stateModel.getStateId().equals(workItemStateId)) {
-//							command.logger.trace("Found: Work item proxy:" + workItem.toString());
-//							stateModel.setItemContent(workItem.getFullState().toString()); // Too much memory
-							if (workItem != null && workItem.getPredecessorState() != null || workItem.getMergePredecessorState() != null ) {								
-								String predecessorStateId= workItem.getPredecessorState() != null ? workItem.getPredecessorState().getStateId().getUuidValue() :
-									workItem.getMergePredecessorState() != null ? workItem.getMergePredecessorState().getStateId().getUuidValue() : "nil";
-									stateModel.setPredecessorStateId(predecessorStateId);
-									allPredecessorIds.add(predecessorStateId); // used to find first item
-							}
-							
-							isFound=true;
-							break;
-						}
-					}
-					if (!isFound) {
+					RepositoryStateModel stateModel= result.getState(workItemStateId);
+					if (stateModel == null) {
 						// loading the repository state failed
 						command.logger.trace("...... Repodebug state not found for Work item API state:" + workItemStateId + "\nWork Item: " + workItem.getFullState().toString());
-						RepositoryStateModel stateModel= new RepositoryStateModel(workItemStateId, workItem); 
-//						stateModel.setItemContent(workItem.getFullState().toString()); // too much memory
-						if (workItem != null) {								
-							String predecessorStateId= workItem.getPredecessorState() != null ? workItem.getPredecessorState().getStateId().getUuidValue() :
-								workItem.getMergePredecessorState() != null ? workItem.getMergePredecessorState().getStateId().getUuidValue() : "nil";
-								stateModel.setPredecessorStateId(predecessorStateId);
-								allPredecessorIds.add(predecessorStateId); // used to find first item
-						}
-						result.add(stateModel);
+						stateModel= result.add(new RepositoryStateModel(workItemStateId, workItem)); 
 					}
+//					stateModel.setItemContent(workItem.getFullState().toString()); // Too much memory
+					result.setPredecessors(stateModel, getStateId(workItem.getPredecessorState()), getStateId(workItem.getMergePredecessorState()));
 				}
 				// Find the top item...
-				for (RepositoryStateModel stateModel: result) {
-					String stateId= stateModel.getStateId();
-					boolean isCurrent= !allPredecessorIds.contains(stateId);
-					stateModel.setIsCurrentState(isCurrent);
-					if (isCurrent) {							
-						command.logger.info("Current state is: " + stateId + " for  Work Item " +rootHandle.getItemId().getUuidValue());
-					}
-					if (stateModel.getPredecessorStateId() == null) {							
-						command.logger.info("Initial state is: " + stateId + " for  Work Item " +rootHandle.getItemId().getUuidValue());
-					}
-				}
+				logCurrentAndInitialStates(result, rootHandle, command);
 			} catch (Exception e) {
 				// TODO Auto-generated catch block
 				command.logger.error("Error fetching complete states for work item: " + rootHandle.getItemId().getUuidValue() + " handles:\n" + stateHandles);
@@ -329,35 +298,103 @@ public class WorkItemStateHelper {
 	}
  
 	
-		private final String GET_RAW_ITEM_STATE_RESOURCE_URL_PREFIX="/repodebug/repository/rawItemState/";
-		private final String GET_RAW_ITEM_STATE_RESOURCE_URL_SUFFIX="/raw";
-		private String getItemRawContentViaRest(ValidateWorkItemStatesCommand command,  String stateId, boolean isTracing) throws Exception {
-	        String repositoryUrl= command.repositoryUrl;
-			// https://theserver:9443/ccm/repodebug/repository/rawItemState/_n1tT8KegEeqU3qZ0xzTZsg/raw
-			String resourceUrl= repositoryUrl + GET_RAW_ITEM_STATE_RESOURCE_URL_PREFIX + stateId +  GET_RAW_ITEM_STATE_RESOURCE_URL_SUFFIX;
-			ITeamRawRestServiceClient restClient = command.getRestClient(new URI(resourceUrl));
-			IRawRestClientConnection connection = restClient.getConnection(new URI(resourceUrl));
-
-			connection.addRequestHeader(HttpUtil.ACCEPT, "application/xml");
+		/**
+		 * The result of the validation of a state and the output written while
+		 * validating it.
+		 */
+		private static class StateValidationResult {
+			final boolean isValid;
+			final BufferedLog log;
+
+			StateValidationResult(boolean isValid, BufferedLog log) {
+				this.isValid= isValid;
+				this.log= log;
+			}
+		}
+
+		private RawStateFetcher fRawStateFetcher= null;
+		private RawStateCache fRawStateCache= null;
+		// The worker threads validating states, shared by all work items of the run
+		private ExecutorService fStateExecutor= null;
+		private boolean fStateExecutorCreated= false;
+		private synchronized RawStateFetcher getRawStateFetcher(ValidateWorkItemStatesCommand command) {
+			if (fRawStateFetcher == null) {
+				// Attribute states are shared between work items, keep them for the whole run.
+				// Without visitedPerWorkItem each attribute state is read once per run, a cache would never be hit
+				if (command.isVisitedPerWorkItem()) {
+					fRawStateCache= new RawStateCache(command.getStateCacheEntries(), command.getStateCacheMegabytes() * 1024L * 1024L);
+				}
+				fRawStateFetcher= new RawStateFetcher(command, command.getMaxConnections(), fRawStateCache);
+			}
+			return fRawStateFetcher;
+		}
+
+		private synchronized ExecutorService getStateExecutor(ValidateWorkItemStatesCommand command) {
+			if (!fStateExecutorCreated) {
+				fStateExecutor= OrderedTaskRunner.newExecutor(command.getThreads(), command.getCommandName());
+				fStateExecutorCreated= true;
+			}
+			return fStateExecutor;
+		}
+
+		/**
+		 * @return the statistics of the raw state cache or null if nothing was fetched
+		 */
+		public synchronized String getRawStateCacheStatistics() {
+			return fRawStateCache != null ? fRawStateCache.getStatistics() : null;
+		}
+
+		/**
+		 * @return the number of states visited and the lookups saved by the visited sets
+		 */
+		public String getVisitedStatistics() {
+			return "Visited states: " + visitedRestStates.size() + " attribute states via REST, " + visitedApiStates.size() 
+					+ " attributes via API. Lookups saved: " + (visitedRestStates.getLookupsSaved() + visitedApiStates.getLookupsSaved()) 
+					+ " of " + (visitedRestStates.getLookups() + visitedApiStates.getLookups()) + ".";
+		}
+
+		/**
+		 * Release the threads used to fetch raw item states and to validate
+		 * states.
+		 */
+		public synchronized void dispose() {
+			if (fRawStateFetcher != null) {
+				fRawStateFetcher.dispose();
+				fRawStateFetcher= null;
+			}
+			if (fStateExecutor != null) {
+				fStateExecutor.shutdownNow();
+				fStateExecutor= null;
+			}
+			fStateExecutorCreated= false;
+		}
+
+		/**
+		 * @param command
+		 * @param log - the log of the task that reads the state
+		 * @param stateId
+		 * @param isTracing
+		 * @param isShared - true for attribute states, which are cached for the run
+		 * @return the raw content of the state
+		 * @throws Exception
+		 */
+		private String getItemRawContentViaRest(ValidateWorkItemStatesCommand command, BufferedLog log, String stateId, boolean isTracing, boolean isShared) throws Exception {
 			String content= null;
 			try {
-				command.logger.trace("... Loading raw item state: " + resourceUrl);
-				com.ibm.team.repository.transport.client.ITeamRawRestServiceClient.IRawRestClientConnection.Response response = connection
-						.doGet();			
-				content= IOUtils.read(response.getResponseStream(), IOUtils.UTF8);
+				byte[] rawContent= getRawStateFetcher(command).fetch(stateId, isShared);
+				content= new String(rawContent, "UTF-8");
 				if (isTracing) {					
-					command.logger.trace("... Content fetched: " + stateId + " \n" + content);
+					log.trace("... Content fetched: " + stateId + " \n" + content);
 				} else {
-					command.logger.trace("... Content fetched for " + stateId + " length:" + content.length());
+					log.trace("... Content fetched for " + stateId + " length:" + content.length());
 				}
 			} catch (Exception e) {
 				command.setUseRest(false);
-				command.logger.error("Exception fetching raw content from repodebug via REST GET. " +
+				log.error("Exception fetching raw content from repodebug via REST GET. " +
 						"Enable REPODEBUG in Advanced Properties and ensure the user has JazzAdmin priveledges. " + 
 						"State id:" + stateId);
 				throw e;
 			} 
-			connection.release();
 			return content;
 		}
 		
@@ -366,30 +403,15 @@ public class WorkItemStateHelper {
 			return true;
 		}
 		
-		public RepositoryStateModel getCurrentStateModelFromList(List<RepositoryStateModel> stateList) {
-            for (RepositoryStateModel stateModel : stateList) {
-				if(stateModel.getIsCurrentState()) {
-					return stateModel;
-				}
-			}
-			return null;
-		}
-		
-		public RepositoryStateModel getStateModelWithId(List<RepositoryStateModel> stateList, String stateId) {
-            for (RepositoryStateModel stateModel : stateList) {
-				if(stateModel.getStateId().contentEquals(stateId)) {
-					return stateModel;
-				}
-			}
-			return null;
-		}
-		
-		
-		public boolean validateWorkItemStates(ValidateWorkItemStatesCommand command, List<RepositoryStateModel> stateList, String searchString) throws Exception {
+		public boolean validateWorkItemStates(ValidateWorkItemStatesCommand command, RepositoryStateGraph stateGraph, String searchString) throws Exception {
 			boolean result= true;
-			RepositoryStateModel currentStateModel = getCurrentStateModelFromList(stateList);
-			if (command.isUseRest()) {				
-				validateWorkItemStateViaRest(command, stateList, currentStateModel, 0, searchString);
+			if (command.isVisitedPerWorkItem()) {
+				visitedRestStates.clear();
+				visitedApiStates.clear();
+			}
+			RepositoryStateModel currentStateModel = stateGraph.getCurrentState();
+			if (command.isUseRest() && currentStateModel != null) {				
+				validateWorkItemStateViaRest(command, stateGraph, currentStateModel, 0, searchString);
 			}
 
 			validateWorkItemStateWithItemAPI(command, currentStateModel, searchString);
@@ -398,30 +420,107 @@ public class WorkItemStateHelper {
 		
 		
 		
-		public boolean validateWorkItemStateViaRest(ValidateWorkItemStatesCommand command,  List<RepositoryStateModel> stateList, RepositoryStateModel stateModel, int rank, String searchString) throws Exception {
-			command.logger.info("Validating: " + stateModel.getStateId() + "\n> " + rank + ": " + stateModel.getStateId() + " ... validating... ");
+		/**
+		 * Validate a state and its predecessors via REST. The predecessor chain is
+		 * walked in the state graph into a work queue, numbering the states by
+		 * rank. The queued states are independent of each other and are validated
+		 * by the number of threads the command provides.
+		 * 
+		 * @param command
+		 * @param stateGraph
+		 * @param stateModel - the state to start with, usually the current state
+		 * @param rank - the rank of the state to start with
+		 * @param searchString
+		 * @return true if all states were validated
+		 * @throws Exception
+		 */
+		public boolean validateWorkItemStateViaRest(final ValidateWorkItemStatesCommand command,  RepositoryStateGraph stateGraph, RepositoryStateModel stateModel, int rank, final String searchString) throws Exception {
+			List<RepositoryStateModel> queue= new ArrayList<RepositoryStateModel>();
+			Set<String> queuedStateIds= new HashSet<String>();
+			int maxStates= command.getMaxStates();
+			RepositoryStateModel next= stateModel;
+			while (next != null) {
+				if (!queuedStateIds.add(next.getStateId())) {
+					command.logger.error("Predecessor cycle found at state: " + next.getStateId() + " for work item: " + next.getWorkItemId());
+					break;
+				}
+				if (maxStates > 0 && queue.size() >= maxStates) {
+					command.logger.info("Validated the first " + maxStates + " states only, maxStates reached for work item: " + next.getWorkItemId());
+					break;
+				}
+				queue.add(next);
+				next= stateGraph.getPredecessor(next);
+			}
+
+			final boolean[] result= new boolean[] { true };
+			ExecutorService stateExecutor= getStateExecutor(command);
+			// States validated on other threads keep their output until it is their turn
+			final boolean isBuffered= stateExecutor != null;
+			OrderedTaskRunner<StateValidationResult> runner= new OrderedTaskRunner<StateValidationResult>(stateExecutor, command.getThreads() * 2,
+					new OrderedTaskRunner.IResultHandler<StateValidationResult>() {
+						@Override
+						public void handleResult(StateValidationResult stateResult) {
+							stateResult.log.flush();
+							result[0] &= stateResult.isValid;
+						}
+					});
+			// Keep the fetcher busy with the states ahead of the ones validated
+			RawStateFetcher fetcher= getRawStateFetcher(command);
+			int prefetchWindow= fetcher.getMaxConnections() + command.getThreads();
+			try {
+				int prefetched= 0;
+				for (int i= 0; i < queue.size(); i++) {
+					while (prefetched < queue.size() && prefetched < i + prefetchWindow) {
+						fetcher.prefetch(queue.get(prefetched++).getStateId());
+					}
+					final RepositoryStateModel queuedStateModel= queue.get(i);
+					final int queuedRank= rank + i;
+					runner.submit(new Callable<StateValidationResult>() {
+						@Override
+						public StateValidationResult call() throws Exception {
+							BufferedLog log= new BufferedLog(command.logger, isBuffered);
+							try {
+								return new StateValidationResult(validateSingleStateViaRest(command, log, queuedStateModel, queuedRank, searchString), log);
+							} catch (Exception e) {
+								// Keep the output written before the failure
+								log.flush();
+								throw e;
+							}
+						}
+					});
+				}
+				runner.finish();
+			} finally {
+				runner.shutdown();
+				fetcher.clear();
+			}
+			return result[0];
+		}
+
+		private boolean validateSingleStateViaRest(ValidateWorkItemStatesCommand command, BufferedLog log, RepositoryStateModel stateModel, int rank, String searchString) throws Exception {
+			log.info("Validating: " + stateModel.getStateId() + "\n> " + rank + ": " + stateModel.getStateId() + " ... validating... ");
 //						+ (stateModel.getRawContent() == null ? " [no repodebug content] " : " [rawContentSize: " + stateModel.getRawContent().length() + "] " /* + stateModel.getItemContent() */)
 			boolean result= true;
 			String exportFolder= command.getExportFolderPath();
-			String rawContent= getItemRawContentViaRest(command, stateModel.getStateId(), false); // can be the second call but necessary to prevent memory overflow
+			// The only fetch of the state, the content is traced here and not kept to prevent memory overflow
+			String rawContent= getItemRawContentViaRest(command, log, stateModel.getStateId(), log.isTraceEnabled(), false);
 
 			if (rawContent != null) {
 				// Does the content contain the percent character or other invalid character			
 				String trimmedContent= stripInvalidXMLCharacters2(rawContent); // should be the same
 				if (!trimmedContent.contentEquals(rawContent)) {
-					if (command.logger.isTraceEnabled()) {
-						command.logger.trace("Work Item State: " + stateModel.getStateId() + " Warning: Trimmed Content Differs.\n***Warining Trimmed XML content differs..." + rawContent.length() + " [trimmed length: " + trimmedContent.length() + "]" 
+					if (log.isTraceEnabled()) {
+						log.trace("Work Item State: " + stateModel.getStateId() + " Warning: Trimmed Content Differs.\n***Warining Trimmed XML content differs..." + rawContent.length() + " [trimmed length: " + trimmedContent.length() + "]" 
 												+ " trimmed Content:\n" + trimmedContent);
 					} 
 				} else {
-					command.logger.info("Work Item State: " + stateModel.getStateId() + " XML Content OK. Length: " + rawContent.length());
+					log.info("Work Item State: " + stateModel.getStateId() + " XML Content OK. Length: " + rawContent.length());
 				}
 				
-				Document stateDocument= validateElementsInWorkItemXML(command, rawContent);
-				saveRawContentToFile(command, stateModel.getWorkItemId(), stateDocument, rank, stateModel.getStateId(),  null, null, rawContent);
+				RawStateSummary stateSummary= validateElementsInWorkItemXML(command, log, rawContent);
+				saveRawContentToFile(command, log, stateModel.getWorkItemId(), stateSummary, rank, stateModel.getStateId(),  null, null, rawContent);
 
-//				stateModel.setStateDocument(stateDocument); // skip for performance
-				validateReferencesViaRest(command, stateModel.getWorkItemId(), stateDocument, stateModel.getStateId(), 0, rank, searchString);
+				validateReferencesViaRest(command, log, stateModel.getWorkItemId(), stateSummary, stateModel.getStateId(), 0, rank, searchString);
 				
 				// export attachments
 				String rankString = "" + rank;
@@ -439,7 +538,7 @@ public class WorkItemStateHelper {
 				}
 				
 				if (searchString != null) {
-					checkSearchString(command, searchString, trimmedContent, "Work Item " + (stateModel.getWorkItem().getId()) , stateModel.getStateId());
+					checkSearchString(command, log, searchString, trimmedContent, "Work Item " + (stateModel.getWorkItem().getId()) , stateModel.getStateId());
 				}
 			}
 			
@@ -455,10 +554,6 @@ public class WorkItemStateHelper {
 			// <customAttributes  itemId="_DTojwob-EemHzv1EhNtN5A"  stateId="_DTrnFob-EemHzv1EhNtN5A" />
 
 			
-			if (stateModel.getPredecessorStateId() != null) {
-				validateWorkItemStateViaRest(command, stateList, getStateModelWithId(stateList, stateModel.getPredecessorStateId()), rank+1, searchString);
-			}
-			
 			return result;
 		}
 		
@@ -503,7 +598,7 @@ public class WorkItemStateHelper {
 		     return in.replaceAll(xml10pattern, "").trim();
 		}
 
-		public Document validateReferencesViaRest(ValidateWorkItemStatesCommand command,  String workItemId, Document doc, String workItemStateId, int depth, int rank, String searchString) throws Exception {
+		public RawStateSummary validateReferencesViaRest(ValidateWorkItemStatesCommand command, BufferedLog log, String workItemId, RawStateSummary summary, String workItemStateId, int depth, int rank, String searchString) throws Exception {
 			if (depth > command.getDepth()) {
 				return null;
 			}
@@ -512,221 +607,152 @@ public class WorkItemStateHelper {
 			// custom attributes
 			// project area
 			// todo: Contributors
-			if (doc != null) {				
-				String targetItemId= getAttributeForTagFromDocument(command, doc, "target", "itemId");
-				command.logger.trace("Loading Target...");
+			if (summary != null) {				
+				String targetItemId= summary.getTargetItemId();
+				log.trace("Loading Target...");
 				if (targetItemId != null) {					
-					validateAttributeStateViaRest(command, workItemId, workItemStateId, "target", targetItemId, depth, rank, searchString );
+					validateAttributeStateViaRest(command, log, workItemId, workItemStateId, "target", targetItemId, depth, rank, searchString );
 				} else {
-					command.logger.trace("OK. No target (Planned For) attribute found in state.");
+					log.trace("OK. No target (Planned For) attribute found in state.");
 				}
 
-				command.logger.trace("Loading Found In...");
-				String foundInItemId= getAttributeForTagFromDocument(command, doc, "foundIn", "itemId");
-				validateAttributeStateViaRest(command, workItemId,  workItemStateId, "foundIn", foundInItemId, depth, rank, searchString);
+				log.trace("Loading Found In...");
+				String foundInItemId= summary.getFoundInItemId();
+				validateAttributeStateViaRest(command, log, workItemId,  workItemStateId, "foundIn", foundInItemId, depth, rank, searchString);
 				
 				// Get all states for custom attributes...
-				command.logger.trace("Loading custom attributes...");
-				List<String> customAttributeStateIdList= getAttributeForTagsFromDocument(command, doc, "customAttribute", "stateId");
-				if (customAttributeStateIdList != null && customAttributeStateIdList.size() > 0) {					
+				log.trace("Loading custom attributes...");
+				List<String> customAttributeStateIdList= summary.getCustomAttributeStateIds();
+				if (customAttributeStateIdList.size() > 0) {					
 					for (String customStateId : customAttributeStateIdList) {
-						validateAttributeStateViaRest(command, workItemId, workItemStateId, "customAttribute", customStateId, depth, rank, searchString);
+						validateAttributeStateViaRest(command, log, workItemId, workItemStateId, "customAttribute", customStateId, depth, rank, searchString);
 					}
 				} else {
-					command.logger.trace("OK. No custom attributes found.");
+					log.trace("OK. No custom attributes found.");
 				}
 				
-				command.logger.trace("Loading Project Area...");
-				String projectAreaItemId= getAttributeForTagFromDocument(command, doc, "projectArea", "itemId");
-				validateAttributeStateViaRest(command, workItemId, workItemStateId, "projectArea", projectAreaItemId, depth, rank, searchString);
+				log.trace("Loading Project Area...");
+				String projectAreaItemId= summary.getProjectAreaItemId();
+				validateAttributeStateViaRest(command, log, workItemId, workItemStateId, "projectArea", projectAreaItemId, depth, rank, searchString);
 				
-				command.logger.trace("OK. References validated.");
+				log.trace("OK. References validated.");
 			} else {
-				command.logger.trace("Warning. Null document returned from parseXmlDocument. \n*** Check state: " + workItemStateId + " for work item: " + workItemId );
+				log.trace("Warning. Null summary returned from reading the XML. \n*** Check state: " + workItemStateId + " for work item: " + workItemId );
 			}
 
-			return doc;
+			return summary;
 		}
 		
-		public Document validateElementsInWorkItemXML(ValidateWorkItemStatesCommand command,  String content) throws Exception {
-			Document doc= null;
+		/**
+		 * Read the work item state in a single pass. Reading the whole content
+		 * checks that the XML is well formed.
+		 * 
+		 * @return the summary or null if the XML is broken
+		 */
+		public RawStateSummary validateElementsInWorkItemXML(ValidateWorkItemStatesCommand command, BufferedLog log, String content) throws Exception {
+			RawStateSummary summary= null;
 			try {				
-				doc= parseXmlDocument(content); // throw exception if broken
-				NodeList nodes= doc.getElementsByTagName("id");
-				String id= nodes.getLength() > 0 ? nodes.item(0).getFirstChild().getNodeValue() : "[no id]";
-				
-				nodes= doc.getElementsByTagName("mergePredecessor");
-				String mergePredId= "[no mergePredecessor]";
-				if (nodes != null && nodes.getLength() > 0 && nodes.item(0) != null && nodes.item(0).getFirstChild() != null) {					
-					mergePredId= nodes.item(0).getFirstChild().getNodeValue();
-				}
-				
-				nodes= doc.getElementsByTagName("predecessor");
-				String predId=  "[no predecessor]";
-				if (nodes != null && nodes.getLength() > 0 && nodes.item(0) != null && nodes.item(0).getFirstChild() != null) {	
-					predId= nodes.item(0).getFirstChild().getNodeValue();
-				}
-				
-				nodes= doc.getElementsByTagName("stateId");
-				String stateId=  "[no stateId]";
-				if (nodes != null && nodes.getLength() > 0 && nodes.item(0) != null && nodes.item(0).getFirstChild() != null) {
-					stateId= nodes.item(0).getFirstChild().getNodeValue();
-				}
-				
-				nodes= doc.getElementsByTagName("workitem:WorkItem");
-				String itemId= "[no itemId]";
-				if (nodes != null && nodes.getLength() > 0 && nodes.item(0).getAttributes() != null && nodes.item(0).getAttributes().getNamedItem("itemId") != null ) {
-					itemId=  nodes.item(0).getAttributes().getNamedItem("itemId").getNodeValue();
-				}
-
-				command.logger.trace("OK. XML parsed.\n--Id: " + id + " itemId: " + itemId + " state: " + stateId + " predecessor: " + predId + " mergePredesessor: " + mergePredId );
+				summary= RawStateSummary.read(content); // throw exception if broken
+				String id= summary.getId() != null ? summary.getId() : "[no id]";
+				String mergePredId= summary.getMergePredecessor() != null ? summary.getMergePredecessor() : "[no mergePredecessor]";
+				String predId= summary.getPredecessor() != null ? summary.getPredecessor() : "[no predecessor]";
+				String stateId= summary.getStateId() != null ? summary.getStateId() : "[no stateId]";
+				String itemId= summary.getItemId() != null ? summary.getItemId() : "[no itemId]";
+
+				log.trace("OK. XML parsed.\n--Id: " + id + " itemId: " + itemId + " state: " + stateId + " predecessor: " + predId + " mergePredesessor: " + mergePredId );
 			} catch (Exception e) {
-				if(command.logger.isTraceEnabled()) {
-					command.logger.error("Exception parsing xml. Content: \n" + content);
+				if(log.isTraceEnabled()) {
+					log.error("Exception parsing xml. Content: \n" + content);
 				} else {					
-					command.logger.error("Exception parsing xml.");
+					log.error("Exception parsing xml.");
 				}
 				return null;
 			}
 
-				return doc;
+				return summary;
 		}
 		
-		public Document validateElementsInStateXML(ValidateWorkItemStatesCommand command,  String content) throws Exception {
-			Document doc= null;
+		/**
+		 * Read an attribute state in a single pass. Reading the whole content
+		 * checks that the XML is well formed.
+		 * 
+		 * @return the summary or null if the XML is broken
+		 */
+		public RawStateSummary validateElementsInStateXML(ValidateWorkItemStatesCommand command, BufferedLog log, String content) throws Exception {
+			RawStateSummary summary= null;
 			try {				
-				doc= parseXmlDocument(content); // throw exception if broken
-				
-				NodeList nodes= doc.getElementsByTagName("mergePredecessor");
-				String mergePredId= "[no mergePredecessor]";
-				if (nodes != null && nodes.getLength() > 0 && nodes.item(0) != null && nodes.item(0).getFirstChild() != null) {					
-					mergePredId= nodes.item(0).getFirstChild().getNodeValue();
-				}
-				
-				nodes= doc.getElementsByTagName("predecessor");
-				String predId=  "[no predecessor]";
-				if (nodes != null && nodes.getLength() > 0 && nodes.item(0) != null && nodes.item(0).getFirstChild() != null) {	
-					predId= nodes.item(0).getFirstChild().getNodeValue();
-				}
-				
-				nodes= doc.getElementsByTagName("stateId");
-				String stateId=  "[no stateId]";
-				if (nodes != null && nodes.getLength() > 0 && nodes.item(0) != null && nodes.item(0).getFirstChild() != null) {
-					stateId= nodes.item(0).getFirstChild().getNodeValue();
-				}
+				summary= RawStateSummary.read(content); // throw exception if broken
+				String mergePredId= summary.getMergePredecessor() != null ? summary.getMergePredecessor() : "[no mergePredecessor]";
+				String predId= summary.getPredecessor() != null ? summary.getPredecessor() : "[no predecessor]";
+				String stateId= summary.getStateId() != null ? summary.getStateId() : "[no stateId]";
 				
-				command.logger.trace("OK. XML parsing state validated.\n---- state: " + stateId + " predecessor: " + predId + " mergePredesessor:" + mergePredId );
+				log.trace("OK. XML parsing state validated.\n---- state: " + stateId + " predecessor: " + predId + " mergePredesessor:" + mergePredId );
 			} catch (Exception e) {
-				if(command.logger.isTraceEnabled()) {
-					command.logger.error("Exception parsing xml. Content: \n" + content);
+				if(log.isTraceEnabled()) {
+					log.error("Exception parsing xml. Content: \n" + content);
 				} else {					
-					command.logger.error("Exception parsing xml.");
+					log.error("Exception parsing xml.");
 				}
 				return null;
 			}
 
-				return doc;
+				return summary;
 		}
 		
-		
-		public String getAttributeForTagFromDocument(ValidateWorkItemStatesCommand commandDocument, Document doc, String tagName, String attributeNameOrNull) {
-			NodeList nodes= doc.getElementsByTagName(tagName);
-			String result= null;
-			if (nodes != null && nodes.getLength() > 0 && nodes.item(0) != null) {
-				if (attributeNameOrNull == null && nodes.item(0).getFirstChild() != null) {
-					result = nodes.item(0).getFirstChild().getNodeValue();
-				} else {
-					if (nodes.item(0).getAttributes() != null && nodes.item(0).getAttributes().getNamedItem(attributeNameOrNull) != null) {
-						result= nodes.item(0).getAttributes().getNamedItem(attributeNameOrNull).getNodeValue();
-					}
-				}
-			}
-			
-			return result;
-		}
-		
-		public List<String> getAttributeForTagsFromDocument(ValidateWorkItemStatesCommand commandDocument, Document doc, String tagName, String attributeNameOrNull) {
-			NodeList nodes= doc.getElementsByTagName(tagName);
-			List<String>  result= new ArrayList<String>();
-			if (nodes == null || nodes.getLength() == 0){
-				return result;
-			}
-					
-			for (int i=0; i<nodes.getLength(); i++) {
-				Node node= nodes.item(i);
-				if (attributeNameOrNull == null && node.getFirstChild() != null) {
-					String value= node.getFirstChild().getNodeValue();
-					result.add(value);
-				} else { // attribute
-					if (node.getAttributes() != null && node.getAttributes().getNamedItem(attributeNameOrNull) != null) {
-						String value= node.getAttributes().getNamedItem(attributeNameOrNull).getNodeValue();
-						result.add(value);
-					}
-				}
-			}
-			
-			return result;
-		}
-		
-		private List<String> visitedRestStates= new ArrayList<String>();
-		public void validateAttributeStateViaRest(ValidateWorkItemStatesCommand command, String workItemId, String workItemStateId, String attributeName, String attributeStateId, int depth, int rank, String searchString) throws Exception {
+		private UUIDVisitedSet visitedRestStates= new UUIDVisitedSet();
+		public void validateAttributeStateViaRest(ValidateWorkItemStatesCommand command, BufferedLog log, String workItemId, String workItemStateId, String attributeName, String attributeStateId, int depth, int rank, String searchString) throws Exception {
 			if (attributeStateId== null) {
-				command.logger.trace("OK. Attribute not set in remote state: " + attributeName);
+				log.trace("OK. Attribute not set in remote state: " + attributeName);
 				return; // valid
 			}
-			if (visitedRestStates.contains(attributeStateId)) {
-				command.logger.trace("OK. State already visited for " + attributeName + " stateId: " + attributeStateId);
+			// Claim the state before reading it, states of the same work item
+			// validated on other threads share attribute states
+			if (!visitedRestStates.visit(attributeStateId)) {
+				log.trace("OK. State already visited for " + attributeName + " stateId: " + attributeStateId);
 				return;
 			}
 			try {
-			command.logger.trace(">> Reading remote state XML for attribute: " + attributeName + " ["+ attributeStateId + "]" );
+			log.trace(">> Reading remote state XML for attribute: " + attributeName + " ["+ attributeStateId + "]" );
 
-			String attributeContent= getItemRawContentViaRest(command,  attributeStateId, false);
-			command.logger.info("Content for " + attributeName + " ["+ attributeStateId + "] read. Size: " + attributeContent.length());
+			String attributeContent= getItemRawContentViaRest(command, log, attributeStateId, false, true);
+			log.info("Content for " + attributeName + " ["+ attributeStateId + "] read. Size: " + attributeContent.length());
 			
-			checkSearchString(command, searchString, attributeContent, ("attribute " + attributeName), attributeStateId);
+			checkSearchString(command, log, searchString, attributeContent, ("attribute " + attributeName), attributeStateId);
 			
-			visitedRestStates.add(attributeStateId);
-			Document doc= validateElementsInStateXML(command, attributeContent);
-			doc= validateReferencesViaRest(command, workItemId, doc, workItemStateId, depth+1, rank, searchString);
-			saveRawContentToFile(command, workItemId, doc, rank, workItemStateId,  attributeName, attributeStateId, attributeContent);
+			RawStateSummary summary= validateElementsInStateXML(command, log, attributeContent);
+			summary= validateReferencesViaRest(command, log, workItemId, summary, workItemStateId, depth+1, rank, searchString);
+			saveRawContentToFile(command, log, workItemId, summary, rank, workItemStateId,  attributeName, attributeStateId, attributeContent);
 			
 			} catch (Exception e) {
-				command.logger.error("Error. Cannot load content from attribute: " + attributeName + " [" + attributeStateId + "]");
+				// Release the claim, a later reference to the state tries again
+				visitedRestStates.remove(attributeStateId);
+				log.error("Error. Cannot load content from attribute: " + attributeName + " [" + attributeStateId + "]");
 			}
 			
 		}
 		
 		public void checkSearchString(ValidateWorkItemStatesCommand command, String searchString, String attributeContent, String attributeName, String attributeStateId) {
+			checkSearchString(command, new BufferedLog(command.logger, false), searchString, attributeContent, attributeName, attributeStateId);
+		}
+
+		public void checkSearchString(ValidateWorkItemStatesCommand command, BufferedLog log, String searchString, String attributeContent, String attributeName, String attributeStateId) {
 			if (searchString != null && attributeContent != null) {
 				int dex= attributeContent.indexOf(searchString);
 				if (dex != -1) {
-					command.logger.warn("Search string \"" + searchString + "\" found in " + attributeName + " stateId: " + attributeStateId 
+					log.warn("Search string \"" + searchString + "\" found in " + attributeName + " stateId: " + attributeStateId 
 				+ "\n>>>> Search String found at index: " + dex + " in " + attributeName + "\n" 
 				+   (attributeContent.substring(Math.max(0, dex-300), Math.min(dex+300, (attributeContent.length()-1) ))) 
 						);
 							
 				} else {
-					command.logger.debug("Search string not found  in " + attributeName + " stateId: " + attributeStateId);
+					log.debug("Search string not found  in " + attributeName + " stateId: " + attributeStateId);
 				}
 			}		
 		}
 		
 		public Document parseXmlDocument(String xmlDocument) throws ParserConfigurationException, SAXException, IOException {
-			// parse XML document
-			DocumentBuilderFactory factory= SecureDocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(false);
-			factory.setValidating(false);
-			DocumentBuilder docBuilder= factory.newDocumentBuilder();
-			docBuilder.setEntityResolver(new EntityResolver() {
-				public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
-					return new InputSource(new StringReader("")); //$NON-NLS-1$
-				}
-			});
-			org.xml.sax.InputSource inStream= new org.xml.sax.InputSource();
-			inStream.setCharacterStream(new StringReader(xmlDocument));
-			Document doc= docBuilder.parse(inStream);
-			return doc;
+			// parse XML document with the builder of the thread
+			return XmlParserUtil.parseDocument(xmlDocument, false);
 		}
 		
 		public void validateWorkItemStateWithItemAPI(ValidateWorkItemStatesCommand command, RepositoryStateModel workItemStateModel, String searchString) throws Exception {
@@ -759,7 +785,7 @@ public class WorkItemStateHelper {
 			}
 		}
 		
-		private List<String> visitedApiStates= new ArrayList<String>();
+		private UUIDVisitedSet visitedApiStates= new UUIDVisitedSet();
 		public void validateAttributeStateWithItemAPI(ValidateWorkItemStatesCommand command, IAuditableHandle attributeHandle, String attributeName, String searchString) throws Exception {
 			
 			if (attributeHandle == null || attributeHandle.getItemId() == null) {
@@ -819,13 +845,13 @@ public class WorkItemStateHelper {
 			return myString.replace("com.ibm.team.process.internal.common.impl.", "").replace("com.ibm.team.workitem.common.internal.model.impl.", "").replace("com.ibm.team.repository.client.internal.", "");
 		}
 		private boolean madeFolder= false;
-		private void saveRawContentToFile(ValidateWorkItemStatesCommand command, String workItemId, Document document, int rank, String workItemStateId, String attributeName, String attributeStateId, String attributeContent ) {
+		private void saveRawContentToFile(ValidateWorkItemStatesCommand command, BufferedLog log, String workItemId, RawStateSummary summary, int rank, String workItemStateId, String attributeName, String attributeStateId, String attributeContent ) {
 			try {
 				String folder= command.getExportFolderPath();
 				if (folder == null)  return; // OK, no export
 				File dirFile= new File(folder);
 				if(!madeFolder && !dirFile.exists()) {
-					command.logger.info("Make Folder " + folder);
+					log.info("Make Folder " + folder);
 					FileUtils.forceMkdir(dirFile);					
 				} else {
 					madeFolder=true;
@@ -849,15 +875,15 @@ public class WorkItemStateHelper {
 					fileName+=  "." + workItemStateId + "..";
 				}
 				
-				String contentType= document.getDocumentElement().getNodeName();
+				String contentType= summary.getRootElementName();
 				
 				fileName+= "." + contentType.replaceAll(":","_") + ".xml" ;
 				
-				command.logger.info("Saving file " + dirFile.getAbsolutePath() + "/" +  fileName + " size: " + attributeContent.length());
+				log.info("Saving file " + dirFile.getAbsolutePath() + "/" +  fileName + " size: " + attributeContent.length());
 				storeFileContent(command, dirFile.getAbsolutePath() + "/" +  fileName, attributeContent);
 				
 			} catch (Exception e) {
-				command.logger.error("Could not save: " + attributeName );
+				log.error("Could not save: " + attributeName );
 				e.printStackTrace();
 			}
 			
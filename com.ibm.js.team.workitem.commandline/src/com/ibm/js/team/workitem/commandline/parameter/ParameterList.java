@@ -9,6 +9,7 @@ package com.ibm.js.team.workitem.commandline.parameter;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Maintains a list of parameters and provides the required access methods
@@ -25,6 +26,48 @@ public class ParameterList implements Iterable<Parameter> {
 		super();
 	}
 
+	/**
+	 * Creates a copy of a parameter list. The copy has its own map and its own
+	 * parameters, so parameters can be added to or consumed in either list
+	 * without affecting the other one.
+	 * 
+	 * @param parameters
+	 *            - the list to copy
+	 */
+	public ParameterList(ParameterList parameters) {
+		super();
+		for (Map.Entry<String, Parameter> entry : parameters.fParameterList.entrySet()) {
+			Parameter copy = copyParameter(entry.getValue());
+			this.fParameterList.put(entry.getKey(), copy);
+			if (entry.getValue() == parameters.fCommand) {
+				this.fCommand = copy;
+			}
+		}
+	}
+
+	/**
+	 * Create a parameter of the same kind with the same name, value and
+	 * consumed state.
+	 * 
+	 * @param parameter
+	 *            - the parameter to copy
+	 * @return the copy
+	 */
+	private static Parameter copyParameter(Parameter parameter) {
+		Parameter copy;
+		if (parameter.isCommand()) {
+			copy = Parameter.createCommand(parameter.getName());
+		} else if (parameter.isSwitch()) {
+			copy = Parameter.createSwitch(parameter.getName(), parameter.getValue());
+		} else {
+			copy = Parameter.createParameterValue(parameter.getName(), parameter.getValue());
+		}
+		if (parameter.isConsumed()) {
+			copy.setConsumed();
+		}
+		return copy;
+	}
+
 	/**
 	 * Adds a new parameter with name and value to the list.
 	 * 
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Output of a task that goes to the log or to the console.
+ *
+ * A buffered log keeps the messages until it is flushed, so tasks that run at
+ * the same time on different threads do not mix their output. The logs are
+ * flushed in the order of the tasks. Messages for log levels that are not
+ * enabled are not kept.
+ *
+ * An unbuffered log writes the messages right away.
+ *
+ * A log is used by one thread at a time.
+ *
+ */
+public class BufferedLog {
+
+	private final Logger fLogger;
+	private final List<Message> fMessages;
+
+	private static class Message {
+		// null for console output
+		final Level level;
+		final String text;
+
+		Message(Level level, String text) {
+			this.level = level;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * @param logger
+	 *            - the log to write to
+	 * @param buffered
+	 *            - true to keep the messages until flush() is called
+	 */
+	public BufferedLog(Logger logger, boolean buffered) {
+		fLogger = logger;
+		fMessages = buffered ? new ArrayList<Message>() : null;
+	}
+
+	/**
+	 * @return true if the messages are kept until flush() is called
+	 */
+	public boolean isBuffered() {
+		return fMessages != null;
+	}
+
+	public boolean isTraceEnabled() {
+		return fLogger.isTraceEnabled();
+	}
+
+	public boolean isDebugEnabled() {
+		return fLogger.isDebugEnabled();
+	}
+
+	public void trace(String message) {
+		log(Level.TRACE, message);
+	}
+
+	public void debug(String message) {
+		log(Level.DEBUG, message);
+	}
+
+	public void info(String message) {
+		log(Level.INFO, message);
+	}
+
+	public void warn(String message) {
+		log(Level.WARN, message);
+	}
+
+	public void error(String message) {
+		log(Level.ERROR, message);
+	}
+
+	/**
+	 * Write a line to the console.
+	 *
+	 * @param message
+	 */
+	public void println(String message) {
+		if (fMessages == null) {
+			System.out.println(message);
+		} else {
+			fMessages.add(new Message(null, message));
+		}
+	}
+
+	/**
+	 * Write the kept messages in the order they were added.
+	 */
+	public void flush() {
+		if (fMessages == null) {
+			return;
+		}
+		for (Message message : fMessages) {
+			if (message.level == null) {
+				System.out.println(message.text);
+			} else {
+				fLogger.log(message.level, message.text);
+			}
+		}
+		fMessages.clear();
+	}
+
+	private void log(Level level, String message) {
+		if (!fLogger.isEnabled(level)) {
+			return;
+		}
+		if (fMessages == null) {
+			fLogger.log(level, message);
+		} else {
+			fMessages.add(new Message(level, message));
+		}
+	}
+}
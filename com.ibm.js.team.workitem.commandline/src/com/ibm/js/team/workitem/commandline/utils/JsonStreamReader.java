@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull reader for JSON content. The caller walks the structure it
+ * expects and skips the values it does not need. Skipped values are read but
+ * not kept, so the memory used does not depend on the size of the content.
+ *
+ * The reader is lenient about commas between values and does not validate the
+ * structure beyond what the caller asks for. Malformed content results in an
+ * IOException.
+ *
+ */
+public class JsonStreamReader implements Closeable {
+
+	private static final int NONE = -2;
+
+	private final Reader fReader;
+	private int fPeeked = NONE;
+
+	/**
+	 * @param reader
+	 *            - the JSON content, buffered if it is not a BufferedReader
+	 */
+	public JsonStreamReader(Reader reader) {
+		fReader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+	}
+
+	/**
+	 * @return true if the next value is an object
+	 * @throws IOException
+	 */
+	public boolean isObject() throws IOException {
+		return peek() == '{';
+	}
+
+	/**
+	 * @return true if the next value is an array
+	 * @throws IOException
+	 */
+	public boolean isArray() throws IOException {
+		return peek() == '[';
+	}
+
+	/**
+	 * @return true if the next value is a string
+	 * @throws IOException
+	 */
+	public boolean isString() throws IOException {
+		return peek() == '"';
+	}
+
+	public void beginObject() throws IOException {
+		expect('{');
+	}
+
+	public void endObject() throws IOException {
+		expect('}');
+	}
+
+	public void beginArray() throws IOException {
+		expect('[');
+	}
+
+	public void endArray() throws IOException {
+		expect(']');
+	}
+
+	/**
+	 * @return true if the current object or array has another member or element
+	 * @throws IOException
+	 */
+	public boolean hasNext() throws IOException {
+		int c = peek();
+		if (c == ',') {
+			read();
+			c = peek();
+		}
+		return c != '}' && c != ']' && c != -1;
+	}
+
+	/**
+	 * Read the name of the next member of an object and the colon that follows.
+	 *
+	 * @return the name
+	 * @throws IOException
+	 */
+	public String nextName() throws IOException {
+		String name = nextString();
+		expect(':');
+		return name;
+	}
+
+	/**
+	 * Read a string value. Numbers, true and false are returned as text.
+	 *
+	 * @return the value or null for a JSON null
+	 * @throws IOException
+	 */
+	public String nextString() throws IOException {
+		int c = peek();
+		if (c == '"') {
+			read();
+			StringBuilder value = new StringBuilder();
+			readString(value);
+			return value.toString();
+		}
+		if (c == '{' || c == '[' || c == -1) {
+			throw new IOException("Expected a string value but found: " + describe(c));
+		}
+		String literal = readLiteral();
+		return "null".equals(literal) ? null : literal;
+	}
+
+	/**
+	 * Skip the next value including all nested values.
+	 *
+	 * @throws IOException
+	 */
+	public void skipValue() throws IOException {
+		int c = peek();
+		if (c == '"') {
+			read();
+			readString(null);
+		} else if (c == '{' || c == '[') {
+			int depth = 0;
+			do {
+				c = read();
+				if (c == '"') {
+					readString(null);
+				} else if (c == '{' || c == '[') {
+					depth++;
+				} else if (c == '}' || c == ']') {
+					depth--;
+				} else if (c == -1) {
+					throw new IOException("Unexpected end of JSON content");
+				}
+			} while (depth > 0);
+		} else if (c == -1) {
+			throw new IOException("Unexpected end of JSON content");
+		} else {
+			readLiteral();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		fReader.close();
+	}
+
+	private void expect(char expected) throws IOException {
+		int c = peek();
+		if (c == ',' && expected != ',') {
+			read();
+			c = peek();
+		}
+		if (c != expected) {
+			throw new IOException("Expected '" + expected + "' but found: " + describe(c));
+		}
+		read();
+	}
+
+	/**
+	 * Read the characters of a string after the opening quote.
+	 *
+	 * @param value
+	 *            - collects the characters or null to skip them
+	 */
+	private void readString(StringBuilder value) throws IOException {
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				throw new IOException("Unterminated JSON string");
+			}
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				c = read();
+				switch (c) {
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'u':
+					char[] hex = new char[4];
+					for (int i = 0; i < hex.length; i++) {
+						int h = read();
+						if (h == -1) {
+							throw new IOException("Unterminated JSON string");
+						}
+						hex[i] = (char) h;
+					}
+					try {
+						c = Integer.parseInt(new String(hex), 16);
+					} catch (NumberFormatException e) {
+						throw new IOException("Invalid escape in JSON string: \\u" + new String(hex));
+					}
+					break;
+				case -1:
+					throw new IOException("Unterminated JSON string");
+				default:
+					// '"', '\\' and '/' stand for themselves
+					break;
+				}
+			}
+			if (value != null) {
+				value.append((char) c);
+			}
+		}
+	}
+
+	/**
+	 * Read a number, true, false or null.
+	 */
+	private String readLiteral() throws IOException {
+		StringBuilder literal = new StringBuilder();
+		int c = peek();
+		while (c != -1 && c != ',' && c != '}' && c != ']' && c != ':' && !Character.isWhitespace(c)) {
+			literal.append((char) read());
+			c = peekRaw();
+		}
+		if (literal.length() == 0) {
+			throw new IOException("Expected a JSON value but found: " + describe(c));
+		}
+		return literal.toString();
+	}
+
+	/**
+	 * @return the next character that is not white space, without consuming it
+	 */
+	private int peek() throws IOException {
+		int c = peekRaw();
+		while (c != -1 && Character.isWhitespace(c)) {
+			read();
+			c = peekRaw();
+		}
+		return c;
+	}
+
+	private int peekRaw() throws IOException {
+		if (fPeeked == NONE) {
+			fPeeked = fReader.read();
+		}
+		return fPeeked;
+	}
+
+	private int read() throws IOException {
+		if (fPeeked != NONE) {
+			int c = fPeeked;
+			fPeeked = NONE;
+			return c;
+		}
+		return fReader.read();
+	}
+
+	private static String describe(int c) {
+		return c == -1 ? "end of content" : "'" + (char) c + "'";
+	}
+}
@@ -0,0 +1,427 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds all occurrences of a set of strings in a text with one pass over the
+ * text (Aho-Corasick). The automaton is built once and can be shared by
+ * threads, each scan keeps its own state.
+ *
+ * A text can be scanned as a whole or in chunks, for example while it is read
+ * from a stream. Overlapping occurrences and occurrences spanning chunks are
+ * found.
+ *
+ */
+public class MultiPatternMatcher {
+
+	/**
+	 * Receives the occurrences in the order their end is reached.
+	 */
+	public interface IMatchHandler {
+		public void handleMatch(int patternIndex, int start);
+	}
+
+	/**
+	 * An occurrence of a pattern.
+	 */
+	public static final class Match {
+		private final int fPatternIndex;
+		private final int fStart;
+		private final int fEnd;
+		private String fContext = null;
+
+		Match(int patternIndex, int start, int end) {
+			fPatternIndex = patternIndex;
+			fStart = start;
+			fEnd = end;
+		}
+
+		/**
+		 * @return the index of the pattern in the list of patterns
+		 */
+		public int getPatternIndex() {
+			return fPatternIndex;
+		}
+
+		/**
+		 * @return the position of the first character
+		 */
+		public int getStart() {
+			return fStart;
+		}
+
+		/**
+		 * @return the position after the last character
+		 */
+		public int getEnd() {
+			return fEnd;
+		}
+
+		/**
+		 * @return the text around the occurrence if the matches were found in
+		 *         a stream, otherwise null
+		 */
+		public String getContext() {
+			return fContext;
+		}
+	}
+
+	private static final int ROOT = 0;
+	private static final int CHUNK_SIZE = 8192;
+	private static final int[] NO_PATTERNS = new int[0];
+
+	private final List<String> fPatterns;
+	// Transitions of each state, the characters are sorted
+	private final char[][] fTransitionChars;
+	private final int[][] fTransitionTargets;
+	// The state to continue with if there is no transition
+	private final int[] fFailure;
+	// The patterns ending in each state, including those of the failure states
+	private final int[][] fOutput;
+	private final int fMaxPatternLength;
+
+	/**
+	 * @param patterns
+	 *            - the strings to find, empty strings are ignored
+	 */
+	public MultiPatternMatcher(String... patterns) {
+		this(Arrays.asList(patterns));
+	}
+
+	/**
+	 * @param patterns
+	 *            - the strings to find, empty strings are ignored
+	 */
+	public MultiPatternMatcher(List<String> patterns) {
+		fPatterns = Collections.unmodifiableList(new ArrayList<String>(patterns));
+		// Build the trie
+		List<TreeMap<Character, Integer>> transitions = new ArrayList<TreeMap<Character, Integer>>();
+		List<List<Integer>> output = new ArrayList<List<Integer>>();
+		transitions.add(new TreeMap<Character, Integer>());
+		output.add(new ArrayList<Integer>());
+		int maxPatternLength = 0;
+		for (int p = 0; p < fPatterns.size(); p++) {
+			String pattern = fPatterns.get(p);
+			if (pattern == null || pattern.isEmpty()) {
+				continue;
+			}
+			maxPatternLength = Math.max(maxPatternLength, pattern.length());
+			int state = ROOT;
+			for (int i = 0; i < pattern.length(); i++) {
+				Integer next = transitions.get(state).get(pattern.charAt(i));
+				if (next == null) {
+					next = transitions.size();
+					transitions.add(new TreeMap<Character, Integer>());
+					output.add(new ArrayList<Integer>());
+					transitions.get(state).put(pattern.charAt(i), next);
+				}
+				state = next;
+			}
+			output.get(state).add(p);
+		}
+		fMaxPatternLength = maxPatternLength;
+		int states = transitions.size();
+		fTransitionChars = new char[states][];
+		fTransitionTargets = new int[states][];
+		for (int state = 0; state < states; state++) {
+			TreeMap<Character, Integer> stateTransitions = transitions.get(state);
+			fTransitionChars[state] = new char[stateTransitions.size()];
+			fTransitionTargets[state] = new int[stateTransitions.size()];
+			int i = 0;
+			for (Map.Entry<Character, Integer> transition : stateTransitions.entrySet()) {
+				fTransitionChars[state][i] = transition.getKey();
+				fTransitionTargets[state][i] = transition.getValue();
+				i++;
+			}
+		}
+		// Compute the failure states breadth first, so the failure state of a
+		// state is complete before the state is visited
+		fFailure = new int[states];
+		fOutput = new int[states][];
+		fOutput[ROOT] = NO_PATTERNS;
+		Deque<Integer> queue = new ArrayDeque<Integer>();
+		for (int target : fTransitionTargets[ROOT]) {
+			fFailure[target] = ROOT;
+			queue.add(target);
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			fOutput[state] = merge(output.get(state), fOutput[fFailure[state]]);
+			for (int i = 0; i < fTransitionChars[state].length; i++) {
+				char c = fTransitionChars[state][i];
+				int target = fTransitionTargets[state][i];
+				int failure = fFailure[state];
+				while (failure != ROOT && transition(failure, c) < 0) {
+					failure = fFailure[failure];
+				}
+				int next = transition(failure, c);
+				fFailure[target] = next < 0 || next == target ? ROOT : next;
+				queue.add(target);
+			}
+		}
+	}
+
+	/**
+	 * @param patternIndex
+	 * @return the pattern
+	 */
+	public String getPattern(int patternIndex) {
+		return fPatterns.get(patternIndex);
+	}
+
+	/**
+	 * @return the number of patterns
+	 */
+	public int size() {
+		return fPatterns.size();
+	}
+
+	/**
+	 * Find all occurrences of the patterns in a text.
+	 *
+	 * @param text
+	 * @return the occurrences ordered by their start, longer patterns first
+	 *         for the same start
+	 */
+	public List<Match> findAll(CharSequence text) {
+		final List<Match> matches = new ArrayList<Match>();
+		newScanner().scan(text, new IMatchHandler() {
+			@Override
+			public void handleMatch(int patternIndex, int start) {
+				matches.add(new Match(patternIndex, start, start + fPatterns.get(patternIndex).length()));
+			}
+		});
+		sort(matches);
+		return matches;
+	}
+
+	/**
+	 * Find all occurrences of the patterns in a stream. The text is read in
+	 * chunks and only the text needed for the context of the occurrences is
+	 * kept, so the whole text is never held in memory. The reader is not
+	 * closed.
+	 *
+	 * @param reader
+	 * @param contextBefore
+	 *            - the number of characters before the start of an occurrence
+	 *            to keep as its context
+	 * @param contextAfter
+	 *            - the number of characters after the start of an occurrence
+	 *            to keep as its context
+	 * @return the occurrences ordered by their start, with their context
+	 * @throws IOException
+	 */
+	public List<Match> findAll(Reader reader, int contextBefore, int contextAfter) throws IOException {
+		final List<Match> matches = new ArrayList<Match>();
+		final List<Match> pending = new ArrayList<Match>();
+		IMatchHandler handler = new IMatchHandler() {
+			@Override
+			public void handleMatch(int patternIndex, int start) {
+				pending.add(new Match(patternIndex, start, start + fPatterns.get(patternIndex).length()));
+			}
+		};
+		Scanner scanner = newScanner();
+		// The text from windowStart to the scanner position
+		StringBuilder window = new StringBuilder();
+		int windowStart = 0;
+		char[] chunk = new char[CHUNK_SIZE];
+		int read = reader.read(chunk);
+		while (read >= 0) {
+			window.append(chunk, 0, read);
+			scanner.scan(new CharArraySequence(chunk, read), handler);
+			int position = scanner.getPosition();
+			// Keep the text for the context of pending and later occurrences
+			int keep = position - fMaxPatternLength - contextBefore;
+			for (int i = 0; i < pending.size(); i++) {
+				Match match = pending.get(i);
+				if (match.fStart + contextAfter <= position) {
+					setContext(match, window, windowStart, contextBefore, contextAfter);
+					matches.add(match);
+					pending.remove(i--);
+				} else {
+					keep = Math.min(keep, match.fStart - contextBefore);
+				}
+			}
+			// Drop text only in larger steps, removing from the start copies
+			if (keep - windowStart > CHUNK_SIZE) {
+				window.delete(0, keep - windowStart);
+				windowStart = keep;
+			}
+			read = reader.read(chunk);
+		}
+		for (Match match : pending) {
+			setContext(match, window, windowStart, contextBefore, contextAfter);
+			matches.add(match);
+		}
+		sort(matches);
+		return matches;
+	}
+
+	/**
+	 * @param text
+	 * @return true if the text contains any of the patterns
+	 */
+	public boolean containsAny(CharSequence text) {
+		int state = ROOT;
+		for (int i = 0; i < text.length(); i++) {
+			state = next(state, text.charAt(i));
+			if (fOutput[state].length > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return a scanner to feed a text in chunks
+	 */
+	public Scanner newScanner() {
+		return new Scanner();
+	}
+
+	/**
+	 * Scans a text that is passed in chunks. The positions are counted from
+	 * the start of the first chunk. Used by one thread at a time.
+	 */
+	public class Scanner {
+		private int fState = ROOT;
+		private int fPosition = 0;
+
+		/**
+		 * Scan the next chunk of the text.
+		 *
+		 * @param chunk
+		 * @param handler
+		 *            - receives the occurrences that end in the chunk
+		 */
+		public void scan(CharSequence chunk, IMatchHandler handler) {
+			scan(chunk, 0, chunk.length(), handler);
+		}
+
+		/**
+		 * Scan a range of characters as the next chunk of the text.
+		 *
+		 * @param chunk
+		 * @param start
+		 * @param end
+		 * @param handler
+		 */
+		public void scan(CharSequence chunk, int start, int end, IMatchHandler handler) {
+			int state = fState;
+			for (int i = start; i < end; i++) {
+				state = next(state, chunk.charAt(i));
+				fPosition++;
+				for (int patternIndex : fOutput[state]) {
+					handler.handleMatch(patternIndex, fPosition - fPatterns.get(patternIndex).length());
+				}
+			}
+			fState = state;
+		}
+
+		/**
+		 * @return the number of characters scanned
+		 */
+		public int getPosition() {
+			return fPosition;
+		}
+	}
+
+	private static void setContext(Match match, StringBuilder window, int windowStart, int contextBefore,
+			int contextAfter) {
+		int start = Math.max(windowStart, match.fStart - contextBefore);
+		int end = Math.min(windowStart + window.length(), match.fStart + contextAfter);
+		match.fContext = window.substring(start - windowStart, end - windowStart);
+	}
+
+	private static void sort(List<Match> matches) {
+		Collections.sort(matches, new Comparator<Match>() {
+			@Override
+			public int compare(Match m1, Match m2) {
+				if (m1.fStart != m2.fStart) {
+					return m1.fStart < m2.fStart ? -1 : 1;
+				}
+				return m2.fEnd - m1.fEnd;
+			}
+		});
+	}
+
+	/**
+	 * The characters of a chunk read into an array, without copying them.
+	 */
+	private static final class CharArraySequence implements CharSequence {
+		private final char[] fChars;
+		private final int fLength;
+
+		CharArraySequence(char[] chars, int length) {
+			fChars = chars;
+			fLength = length;
+		}
+
+		@Override
+		public int length() {
+			return fLength;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return fChars[index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(fChars, start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			return new String(fChars, 0, fLength);
+		}
+	}
+
+	private int next(int state, char c) {
+		while (true) {
+			int target = transition(state, c);
+			if (target >= 0) {
+				return target;
+			}
+			if (state == ROOT) {
+				return ROOT;
+			}
+			state = fFailure[state];
+		}
+	}
+
+	private int transition(int state, char c) {
+		int i = Arrays.binarySearch(fTransitionChars[state], c);
+		return i < 0 ? -1 : fTransitionTargets[state][i];
+	}
+
+	private static int[] merge(List<Integer> own, int[] inherited) {
+		if (own.isEmpty()) {
+			return inherited;
+		}
+		int[] merged = new int[own.size() + inherited.length];
+		for (int i = 0; i < own.size(); i++) {
+			merged[i] = own.get(i);
+		}
+		System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+		return merged;
+	}
+}
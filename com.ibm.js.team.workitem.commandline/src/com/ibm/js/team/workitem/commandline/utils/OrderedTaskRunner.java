@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2022 IBM Corporation
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.js.team.workitem.commandline.framework.WorkItemCommandLineException;
+
+/**
+ * Runs tasks on a bounded pool of worker threads and hands the results back to
+ * the submitting thread in the order the tasks were submitted.
+ *
+ * The number of tasks that are submitted but not yet handed back is limited.
+ * If the limit is reached, submit() waits for the oldest task. This keeps the
+ * memory flat for large inputs and makes the producer wait for the workers.
+ *
+ * With one thread or less the tasks are run on the calling thread, which is
+ * the same behavior as a plain loop.
+ *
+ * A runner can use an executor that is shared by several runners, for example
+ * one runner per work item on the executor of the command run. The runner
+ * does not shut down a shared executor.
+ *
+ */
+public class OrderedTaskRunner<T> {
+
+	/**
+	 * Receives the results of the tasks in submission order. Always called on
+	 * the thread that submits the tasks.
+	 */
+	public interface IResultHandler<T> {
+		public void handleResult(T result);
+	}
+
+	private final ExecutorService fExecutor;
+	// False if the executor is shared and shut down by its creator
+	private final boolean fOwnsExecutor;
+	private final IResultHandler<T> fHandler;
+	private final int fMaxPending;
+	private final Deque<Future<T>> fPending = new ArrayDeque<Future<T>>();
+
+	/**
+	 * @param threads
+	 *            - the number of worker threads, 1 or less runs serial
+	 * @param maxPending
+	 *            - the maximum number of tasks waiting to be handed back
+	 * @param threadName
+	 *            - prefix for the names of the worker threads
+	 * @param handler
+	 *            - receives the results in submission order
+	 */
+	public OrderedTaskRunner(int threads, int maxPending, String threadName, IResultHandler<T> handler) {
+		fHandler = handler;
+		fMaxPending = Math.max(1, maxPending);
+		fExecutor = newExecutor(threads, threadName);
+		fOwnsExecutor = true;
+	}
+
+	/**
+	 * @param executor
+	 *            - a shared executor created with newExecutor(), null runs
+	 *            serial
+	 * @param maxPending
+	 *            - the maximum number of tasks waiting to be handed back
+	 * @param handler
+	 *            - receives the results in submission order
+	 */
+	public OrderedTaskRunner(ExecutorService executor, int maxPending, IResultHandler<T> handler) {
+		fHandler = handler;
+		fMaxPending = Math.max(1, maxPending);
+		fExecutor = executor;
+		fOwnsExecutor = false;
+	}
+
+	/**
+	 * Create an executor with named daemon worker threads that can be shared
+	 * by runners. The creator shuts it down.
+	 *
+	 * @param threads
+	 *            - the number of worker threads, 1 or less runs serial
+	 * @param threadName
+	 *            - prefix for the names of the worker threads
+	 * @return the executor or null if the tasks are run serial
+	 */
+	public static ExecutorService newExecutor(int threads, String threadName) {
+		if (threads > 1) {
+			return Executors.newFixedThreadPool(threads, new WorkerThreadFactory(threadName));
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the tasks are run on worker threads
+	 */
+	public boolean isParallel() {
+		return fExecutor != null;
+	}
+
+	/**
+	 * Submit a task. Hands back the results of all tasks that are complete and
+	 * waits for the oldest task if too many are pending.
+	 *
+	 * @param task
+	 */
+	public void submit(Callable<T> task) {
+		if (fExecutor == null) {
+			fHandler.handleResult(call(task));
+			return;
+		}
+		fPending.addLast(fExecutor.submit(task));
+		while (fPending.size() > fMaxPending) {
+			handOverOldest();
+		}
+		while (!fPending.isEmpty() && fPending.peekFirst().isDone()) {
+			handOverOldest();
+		}
+	}
+
+	/**
+	 * Wait for all pending tasks, hand back their results and release the
+	 * worker threads if the executor is not shared.
+	 */
+	public void finish() {
+		try {
+			while (!fPending.isEmpty()) {
+				handOverOldest();
+			}
+		} finally {
+			shutdown();
+		}
+	}
+
+	/**
+	 * Cancel all pending tasks and release the worker threads if the executor
+	 * is not shared.
+	 */
+	public void shutdown() {
+		if (fExecutor == null) {
+			return;
+		}
+		for (Future<T> future : fPending) {
+			future.cancel(true);
+		}
+		fPending.clear();
+		if (fOwnsExecutor) {
+			fExecutor.shutdownNow();
+		}
+	}
+
+	private void handOverOldest() {
+		Future<T> oldest = fPending.removeFirst();
+		T result;
+		try {
+			result = oldest.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			shutdown();
+			throw new WorkItemCommandLineException("Interrupted waiting for worker thread.", e);
+		} catch (ExecutionException e) {
+			shutdown();
+			throw unwrap(e.getCause());
+		}
+		fHandler.handleResult(result);
+	}
+
+	private T call(Callable<T> task) {
+		try {
+			return task.call();
+		} catch (Exception e) {
+			throw unwrap(e);
+		}
+	}
+
+	private RuntimeException unwrap(Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new WorkItemCommandLineException((Exception) cause);
+	}
+
+	/**
+	 * Creates named daemon threads, so that a stuck worker does not keep the
+	 * command line from terminating.
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private final String fName;
+		private final AtomicInteger fCount = new AtomicInteger(1);
+
+		private WorkerThreadFactory(String name) {
+			fName = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, fName + "-" + fCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
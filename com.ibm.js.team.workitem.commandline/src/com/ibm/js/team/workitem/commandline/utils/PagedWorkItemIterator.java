@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2022 IBM Corporation
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.ibm.js.team.workitem.commandline.framework.WorkItemCommandLineException;
+import com.ibm.team.repository.common.TeamRepositoryException;
+import com.ibm.team.workitem.common.IWorkItemCommon;
+import com.ibm.team.workitem.common.model.IWorkItem;
+import com.ibm.team.workitem.common.model.IWorkItemHandle;
+import com.ibm.team.workitem.common.model.ItemProfile;
+
+/**
+ * Resolves work item handles in pages. The handles are pulled from the source
+ * until a page is full and the page is resolved with one request to the
+ * server. The work items are returned in the order of the handles.
+ *
+ * If resolving a page fails, the handles of the page are resolved one by one.
+ * Work items that can not be resolved are skipped and counted.
+ *
+ */
+public class PagedWorkItemIterator implements Iterator<IWorkItem> {
+
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	private static final Logger logger = LogManager.getLogger(PagedWorkItemIterator.class);
+
+	private final Iterator<? extends IWorkItemHandle> fHandles;
+	private final ItemProfile<IWorkItem> fProfile;
+	private final int fPageSize;
+	private final IWorkItemCommon fWorkItemCommon;
+	private final IProgressMonitor fMonitor;
+
+	private Iterator<IWorkItem> fPage = null;
+	private int fUnresolved = 0;
+
+	/**
+	 * @param handles
+	 *            - the work item handles to resolve
+	 * @param profile
+	 *            - the load profile to use
+	 * @param pageSize
+	 *            - the number of work items to resolve with one request
+	 * @param workItemCommon
+	 *            - the IWorkItemCommon client library
+	 * @param monitor
+	 *            - a progress monitor or null
+	 */
+	public PagedWorkItemIterator(Iterator<? extends IWorkItemHandle> handles, ItemProfile<IWorkItem> profile,
+			int pageSize, IWorkItemCommon workItemCommon, IProgressMonitor monitor) {
+		fHandles = handles;
+		fProfile = profile;
+		fPageSize = Math.max(1, pageSize);
+		fWorkItemCommon = workItemCommon;
+		fMonitor = monitor;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (fPage == null || !fPage.hasNext()) {
+			if (!fHandles.hasNext()) {
+				return false;
+			}
+			fPage = resolveNextPage().iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public IWorkItem next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return fPage.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @return the number of work items that could not be resolved so far
+	 */
+	public int getUnresolvedCount() {
+		return fUnresolved;
+	}
+
+	/**
+	 * Pull the next page of handles and resolve it.
+	 *
+	 * @return the resolved work items of the page
+	 */
+	private List<IWorkItem> resolveNextPage() {
+		List<IWorkItemHandle> handles = new ArrayList<IWorkItemHandle>(fPageSize);
+		while (handles.size() < fPageSize && fHandles.hasNext()) {
+			handles.add(fHandles.next());
+		}
+		try {
+			logger.trace("Resolving page of " + handles.size() + " work items");
+			return WorkItemUtil.resolveWorkItems(handles, fProfile, fWorkItemCommon, fMonitor);
+		} catch (TeamRepositoryException e) {
+			logger.debug("Resolving page failed, resolving work items one by one: " + e.getMessage());
+		} catch (WorkItemCommandLineException e) {
+			logger.debug("Resolving page failed, resolving work items one by one: " + e.getMessage());
+		}
+		List<IWorkItem> workItems = new ArrayList<IWorkItem>(handles.size());
+		for (IWorkItemHandle handle : handles) {
+			try {
+				workItems.add(WorkItemUtil.resolveWorkItem(handle, fProfile, fWorkItemCommon, fMonitor));
+			} catch (TeamRepositoryException e) {
+				fUnresolved++;
+				logger.warn("Exception resolving work item handle: " + handle.getItemId().getUuidValue() + " "
+						+ e.getMessage());
+			}
+		}
+		return workItems;
+	}
+}
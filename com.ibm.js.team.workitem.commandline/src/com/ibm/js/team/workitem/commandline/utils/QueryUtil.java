@@ -10,6 +10,7 @@ package com.ibm.js.team.workitem.commandline.utils;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -26,6 +27,7 @@ import com.ibm.team.repository.common.TeamRepositoryException;
 import com.ibm.team.workitem.client.IQueryClient;
 import com.ibm.team.workitem.client.IWorkItemClient;
 import com.ibm.team.workitem.common.internal.query.QueryResultIterator;
+import com.ibm.team.workitem.common.model.IWorkItemHandle;
 import com.ibm.team.workitem.common.query.IQueryDescriptor;
 import com.ibm.team.workitem.common.query.IQueryResult;
 import com.ibm.team.workitem.common.query.IResult;
@@ -122,7 +124,9 @@ public class QueryUtil {
 	}
 
 	/**
-	 * Get the query result
+	 * Get the query result. The result is fetched from the server page by page
+	 * while it is iterated. Overriding the result limit only removes the cap on
+	 * the number of results, it does not load them up front.
 	 * 
 	 * @param query
 	 * @param overrideResultLimit
@@ -144,6 +148,49 @@ public class QueryUtil {
 		return results;
 	}
 
+	/**
+	 * Iterate the work item handles of a query result. The handles are taken
+	 * from the query result as it pages through the results, so processing can
+	 * start with the first page and the handles are never held in a list.
+	 * 
+	 * @param results
+	 * @param monitor
+	 * @return
+	 */
+	public static Iterator<IWorkItemHandle> getWorkItemHandles(
+			final IQueryResult<IResult> results, final IProgressMonitor monitor) {
+		return new Iterator<IWorkItemHandle>() {
+
+			@Override
+			public boolean hasNext() {
+				try {
+					return results.hasNext(monitor);
+				} catch (TeamRepositoryException e) {
+					throw new WorkItemCommandLineException(
+							"Exception reading query result: " + e.getMessage(), e);
+				}
+			}
+
+			@Override
+			public IWorkItemHandle next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				try {
+					return (IWorkItemHandle) results.next(monitor).getItem();
+				} catch (TeamRepositoryException e) {
+					throw new WorkItemCommandLineException(
+							"Exception reading query result: " + e.getMessage(), e);
+				}
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
 	/**
 	 * Find the sharing targets to find the query
 	 * 
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2015-2022 IBM Corporation
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A hashed set of visited item or state IDs. Repository UUIDs such as
+ * "_n1tT8KegEeqU3qZ0xzTZsg" are stored as two longs in an open addressing
+ * table instead of as Strings. Values that are not in this format are kept in
+ * a plain hash set.
+ *
+ * The set counts the lookups that found a visited ID, which is the work saved
+ * by the set. The set is thread safe.
+ *
+ */
+public class UUIDVisitedSet {
+
+	// The characters of the repository UUID encoding in the order of their value
+	private static final String UUID_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+	private static final int UUID_LENGTH = 23;
+	private static final int[] UUID_CHAR_VALUES = new int[128];
+	static {
+		for (int i = 0; i < UUID_CHAR_VALUES.length; i++) {
+			UUID_CHAR_VALUES[i] = -1;
+		}
+		for (int i = 0; i < UUID_ALPHABET.length(); i++) {
+			UUID_CHAR_VALUES[UUID_ALPHABET.charAt(i)] = i;
+		}
+	}
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Pairs of longs, slot i uses fKeys[2*i] and fKeys[2*i+1]
+	private long[] fKeys = new long[2 * INITIAL_CAPACITY];
+	private boolean[] fUsed = new boolean[INITIAL_CAPACITY];
+	private int fSize = 0;
+	private Set<String> fOtherValues = new HashSet<String>();
+
+	private long fLookups = 0;
+	private long fLookupsSaved = 0;
+
+	/**
+	 * Add an ID to the set.
+	 *
+	 * @param id
+	 * @return true if the ID was not yet visited
+	 */
+	public synchronized boolean add(String id) {
+		long[] key = toKey(id);
+		if (key == null) {
+			return fOtherValues.add(id);
+		}
+		if (fSize * 2 >= fUsed.length) {
+			resize();
+		}
+		int slot = findSlot(fKeys, fUsed, key[0], key[1]);
+		if (fUsed[slot]) {
+			return false;
+		}
+		fUsed[slot] = true;
+		fKeys[2 * slot] = key[0];
+		fKeys[2 * slot + 1] = key[1];
+		fSize++;
+		return true;
+	}
+
+	/**
+	 * Mark an ID as visited in one step, so that only one thread visits it.
+	 * Counts the lookup.
+	 *
+	 * @param id
+	 * @return true if the ID was not yet visited and is claimed by the caller
+	 */
+	public synchronized boolean visit(String id) {
+		fLookups++;
+		if (add(id)) {
+			return true;
+		}
+		fLookupsSaved++;
+		return false;
+	}
+
+	/**
+	 * Remove an ID from the set, for example to release a claim of a visit
+	 * that failed. Does not change the counters.
+	 *
+	 * @param id
+	 * @return true if the ID was visited
+	 */
+	public synchronized boolean remove(String id) {
+		long[] key = toKey(id);
+		if (key == null) {
+			return fOtherValues.remove(id);
+		}
+		int slot = findSlot(fKeys, fUsed, key[0], key[1]);
+		if (!fUsed[slot]) {
+			return false;
+		}
+		// Move the following keys of the probe sequence back into the gap, so
+		// that they can still be found
+		int mask = fUsed.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (fUsed[next]) {
+			int home = homeSlot(fKeys[2 * next], fKeys[2 * next + 1], mask);
+			// The key can move if its home slot is not between the gap and
+			// its slot
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				fKeys[2 * gap] = fKeys[2 * next];
+				fKeys[2 * gap + 1] = fKeys[2 * next + 1];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		fUsed[gap] = false;
+		fSize--;
+		return true;
+	}
+
+	/**
+	 * Test if an ID was visited. Counts the lookup.
+	 *
+	 * @param id
+	 * @return true if the ID was visited
+	 */
+	public synchronized boolean contains(String id) {
+		fLookups++;
+		boolean found;
+		long[] key = toKey(id);
+		if (key == null) {
+			found = fOtherValues.contains(id);
+		} else {
+			found = fUsed[findSlot(fKeys, fUsed, key[0], key[1])];
+		}
+		if (found) {
+			fLookupsSaved++;
+		}
+		return found;
+	}
+
+	/**
+	 * Forget all visited IDs. The counters are kept.
+	 */
+	public synchronized void clear() {
+		fKeys = new long[2 * INITIAL_CAPACITY];
+		fUsed = new boolean[INITIAL_CAPACITY];
+		fSize = 0;
+		fOtherValues.clear();
+	}
+
+	public synchronized int size() {
+		return fSize + fOtherValues.size();
+	}
+
+	public synchronized long getLookups() {
+		return fLookups;
+	}
+
+	/**
+	 * @return the number of lookups that found a visited ID
+	 */
+	public synchronized long getLookupsSaved() {
+		return fLookupsSaved;
+	}
+
+	private void resize() {
+		long[] keys = new long[fKeys.length * 2];
+		boolean[] used = new boolean[fUsed.length * 2];
+		for (int i = 0; i < fUsed.length; i++) {
+			if (fUsed[i]) {
+				int slot = findSlot(keys, used, fKeys[2 * i], fKeys[2 * i + 1]);
+				used[slot] = true;
+				keys[2 * slot] = fKeys[2 * i];
+				keys[2 * slot + 1] = fKeys[2 * i + 1];
+			}
+		}
+		fKeys = keys;
+		fUsed = used;
+	}
+
+	/**
+	 * Linear probing, returns the slot of the key or the free slot to put it.
+	 */
+	private static int findSlot(long[] keys, boolean[] used, long high, long low) {
+		int mask = used.length - 1;
+		int slot = homeSlot(high, low, mask);
+		while (used[slot] && (keys[2 * slot] != high || keys[2 * slot + 1] != low)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int homeSlot(long high, long low, int mask) {
+		long hash = high * 0x9E3779B97F4A7C15L + low;
+		hash ^= (hash >>> 32);
+		return (int) hash & mask;
+	}
+
+	/**
+	 * Decode a repository UUID into two longs. The 22 characters after the
+	 * underscore encode 132 bits, the last 4 bits are always 0.
+	 *
+	 * @param id
+	 * @return the 128 bits of the UUID or null if the ID is not a UUID
+	 */
+	private static long[] toKey(String id) {
+		if (id == null || id.length() != UUID_LENGTH || id.charAt(0) != '_') {
+			return null;
+		}
+		long high = 0;
+		long low = 0;
+		for (int i = 1; i < UUID_LENGTH; i++) {
+			char c = id.charAt(i);
+			int value = c < UUID_CHAR_VALUES.length ? UUID_CHAR_VALUES[c] : -1;
+			if (value < 0) {
+				return null;
+			}
+			if (i == UUID_LENGTH - 1) {
+				if ((value & 0xF) != 0) {
+					return null;
+				}
+				value >>>= 4;
+				// The last character carries 2 bits
+				high = (high << 2) | (low >>> 62);
+				low = (low << 2) | value;
+			} else {
+				high = (high << 6) | (low >>> 58);
+				low = (low << 6) | value;
+			}
+		}
+		return new long[] { high, low };
+	}
+}
@@ -7,6 +7,9 @@
  *******************************************************************************/
 package com.ibm.js.team.workitem.commandline.utils;
 
+import java.util.Iterator;
+import java.util.List;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 
 import com.ibm.js.team.workitem.commandline.framework.WorkItemCommandLineException;
@@ -14,6 +17,7 @@ import com.ibm.team.repository.common.IAuditableHandle;
 import com.ibm.team.repository.common.TeamRepositoryException;
 import com.ibm.team.workitem.common.IWorkItemCommon;
 import com.ibm.team.workitem.common.model.IWorkItem;
+import com.ibm.team.workitem.common.model.IWorkItemHandle;
 import com.ibm.team.workitem.common.model.ItemProfile;
 
 /**
@@ -67,4 +71,36 @@ public class WorkItemUtil {
 		return (IWorkItem) wiCommon.getAuditableCommon().resolveAuditable(handle,
 				profile, monitor);
 	}
+
+	/**
+	 * Resolve a list of WorkItems from their handles with one request
+	 * 
+	 * @param handles
+	 * @param profile
+	 * @param wiCommon
+	 * @param monitor
+	 * @return the work items in the order of the handles
+	 * @throws TeamRepositoryException
+	 */
+	public static List<IWorkItem> resolveWorkItems(List<? extends IWorkItemHandle> handles,
+			ItemProfile<IWorkItem> profile, IWorkItemCommon wiCommon, IProgressMonitor monitor)
+			throws TeamRepositoryException {
+		return wiCommon.getAuditableCommon().resolveAuditables(handles, profile, monitor);
+	}
+
+	/**
+	 * Resolve WorkItems from handles in pages of the given size. Each page is
+	 * resolved with one request when the iterator reaches it.
+	 * 
+	 * @param handles
+	 * @param profile
+	 * @param pageSize
+	 * @param wiCommon
+	 * @param monitor
+	 * @return an iterator over the resolved work items
+	 */
+	public static PagedWorkItemIterator resolveWorkItems(Iterator<? extends IWorkItemHandle> handles,
+			ItemProfile<IWorkItem> profile, int pageSize, IWorkItemCommon wiCommon, IProgressMonitor monitor) {
+		return new PagedWorkItemIterator(handles, profile, pageSize, wiCommon, monitor);
+	}
 }
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2019-2022 IBM
+ *
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ *
+ *******************************************************************************/
+package com.ibm.js.team.workitem.commandline.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.ibm.team.calm.foundation.common.SecureDocumentBuilderFactory;
+
+/**
+ * Utility class to parse XML documents with secure parsers that are configured
+ * once. Looking up and configuring a parser factory is expensive compared to
+ * parsing a small document.
+ *
+ * The DOM builders are kept per thread and reset before each document. The
+ * StAX factories are shared, creating readers is thread safe. DTDs and
+ * external entities are not supported by the StAX readers and are resolved to
+ * empty content by the DOM builders.
+ *
+ */
+public class XmlParserUtil {
+
+	private static final EntityResolver EMPTY_ENTITY_RESOLVER = new EntityResolver() {
+		@Override
+		public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+			return new InputSource(new StringReader("")); //$NON-NLS-1$
+		}
+	};
+
+	private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory(false);
+	private static final DocumentBuilderFactory NAMESPACE_AWARE_DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory(
+			true);
+	private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>();
+	private static final ThreadLocal<DocumentBuilder> NAMESPACE_AWARE_DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>();
+
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory(false);
+	private static final XMLInputFactory NAMESPACE_AWARE_INPUT_FACTORY = createInputFactory(true);
+
+	/**
+	 * Get the document builder of the current thread, reset to its original
+	 * configuration. The builder must not be passed to other threads.
+	 *
+	 * @param namespaceAware
+	 * @return the document builder
+	 * @throws ParserConfigurationException
+	 */
+	public static DocumentBuilder getDocumentBuilder(boolean namespaceAware) throws ParserConfigurationException {
+		ThreadLocal<DocumentBuilder> threadBuilder = namespaceAware ? NAMESPACE_AWARE_DOCUMENT_BUILDER
+				: DOCUMENT_BUILDER;
+		DocumentBuilder builder = threadBuilder.get();
+		if (builder == null) {
+			DocumentBuilderFactory factory = namespaceAware ? NAMESPACE_AWARE_DOCUMENT_BUILDER_FACTORY
+					: DOCUMENT_BUILDER_FACTORY;
+			// The factory is not thread safe
+			synchronized (factory) {
+				builder = factory.newDocumentBuilder();
+			}
+			threadBuilder.set(builder);
+		} else {
+			builder.reset();
+		}
+		builder.setEntityResolver(EMPTY_ENTITY_RESOLVER);
+		return builder;
+	}
+
+	/**
+	 * Parse a document.
+	 *
+	 * @param xmlDocument
+	 * @param namespaceAware
+	 * @return the document
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static Document parseDocument(String xmlDocument, boolean namespaceAware)
+			throws ParserConfigurationException, SAXException, IOException {
+		InputSource inStream = new InputSource();
+		inStream.setCharacterStream(new StringReader(xmlDocument));
+		return getDocumentBuilder(namespaceAware).parse(inStream);
+	}
+
+	/**
+	 * Create a streaming reader. Adjacent text is returned as one event.
+	 *
+	 * @param reader
+	 * @param namespaceAware
+	 * @return the reader, to be closed by the caller
+	 * @throws XMLStreamException
+	 */
+	public static XMLStreamReader createXMLStreamReader(Reader reader, boolean namespaceAware)
+			throws XMLStreamException {
+		return getInputFactory(namespaceAware).createXMLStreamReader(reader);
+	}
+
+	/**
+	 * Create a streaming reader that detects the encoding of the stream.
+	 * Adjacent text is returned as one event.
+	 *
+	 * @param stream
+	 * @param namespaceAware
+	 * @return the reader, to be closed by the caller
+	 * @throws XMLStreamException
+	 */
+	public static XMLStreamReader createXMLStreamReader(InputStream stream, boolean namespaceAware)
+			throws XMLStreamException {
+		return getInputFactory(namespaceAware).createXMLStreamReader(stream);
+	}
+
+	private static XMLInputFactory getInputFactory(boolean namespaceAware) {
+		return namespaceAware ? NAMESPACE_AWARE_INPUT_FACTORY : INPUT_FACTORY;
+	}
+
+	private static DocumentBuilderFactory createDocumentBuilderFactory(boolean namespaceAware) {
+		DocumentBuilderFactory factory = SecureDocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(namespaceAware);
+		factory.setValidating(false);
+		return factory;
+	}
+
+	private static XMLInputFactory createInputFactory(boolean namespaceAware) {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.valueOf(namespaceAware));
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		return factory;
+	}
+}